@@ -1,13 +1,34 @@
 package com.company.payroll;
 
+import com.company.payroll.db.AsyncDataAccess;
+import com.company.payroll.db.DatabaseManager;
+import com.company.payroll.db.SchemaMigrator;
 import javafx.application.Application;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
 
 public class Main extends Application {
+    private static final Logger log = LoggerFactory.getLogger(Main.class);
+
+    private MainController controller;
+
+    // Database bootstrap: runs once, on the launcher thread, before any UI is built
+    @Override
+    public void init() {
+        long start = System.nanoTime();
+        SchemaMigrator.migrate();
+        log.info("Database ready in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
     @Override
     public void start(Stage primaryStage) {
-        MainController controller = new MainController();
+        long start = System.nanoTime();
+        controller = new MainController();
+        log.info("Tabs built in {} ms", (System.nanoTime() - start) / 1_000_000);
 
         Scene scene = new Scene(controller.getTabPane(), 1000, 700);
         scene.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
@@ -15,6 +36,14 @@ public class Main extends Application {
         primaryStage.setTitle("Payroll Desktop");
         primaryStage.setScene(scene);
         primaryStage.show();
+        log.info("Startup complete {} ms after JVM start", ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    @Override
+    public void stop() {
+        if (controller != null) controller.shutdown();
+        AsyncDataAccess.shutdown();
+        DatabaseManager.shutdown();
     }
 
     public static void main(String[] args) {
@@ -7,30 +7,50 @@ import com.company.payroll.loads.LoadsTab;
 import com.company.payroll.fuel.FuelImportTab;
 import com.company.payroll.payroll.PayrollTab;
 import com.company.payroll.feesadvances.FeesAdvancesTab; // <-- Import your new tab
+import com.company.payroll.employees.EmployeeDAO;
+import com.company.payroll.loads.LoadDAO;
+import com.company.payroll.fuel.FuelTransactionDAO;
+import com.company.payroll.fuel.FuelImportLogDAO;
+import com.company.payroll.fuel.FuelImportJobDAO;
+import com.company.payroll.fuel.FuelImportBatchDAO;
+import com.company.payroll.feesadvances.FeeAdvancesDAO;
+import com.company.payroll.payroll.PayrollCalculator;
 
 public class MainController {
     private TabPane tabPane;
+    private FuelImportTab fuelImportTabContent;
 
     public MainController() {
         tabPane = new TabPane();
 
+        // One instance of each DAO, shared by all tabs (the schema is already set up by Main.init)
+        EmployeeDAO employeeDAO = new EmployeeDAO();
+        LoadDAO loadDAO = new LoadDAO();
+        FuelTransactionDAO fuelDAO = new FuelTransactionDAO();
+        FeeAdvancesDAO feeAdvancesDAO = new FeeAdvancesDAO();
+        FuelImportLogDAO fuelImportLogDAO = new FuelImportLogDAO();
+        FuelImportJobDAO fuelImportJobDAO = new FuelImportJobDAO();
+        FuelImportBatchDAO fuelImportBatchDAO = new FuelImportBatchDAO();
+
         // Instantiate EmployeesTab first
-        EmployeesTab employeesTabContent = new EmployeesTab();
+        EmployeesTab employeesTabContent = new EmployeesTab(employeeDAO);
         Tab employeesTab = new Tab("Employees", employeesTabContent);
         employeesTab.setClosable(false);
 
         // Pass EmployeesTab instance to LoadsTab
-        LoadsTab loadsTabContent = new LoadsTab(employeesTabContent);
+        LoadsTab loadsTabContent = new LoadsTab(employeesTabContent, loadDAO, employeeDAO);
         Tab loadsTab = new Tab("Loads", loadsTabContent);
         loadsTab.setClosable(false);
 
-        Tab fuelImportTab = new Tab("Fuel Import", new FuelImportTab());
+        fuelImportTabContent = new FuelImportTab(fuelDAO, employeeDAO, fuelImportLogDAO, fuelImportJobDAO, fuelImportBatchDAO);
+        Tab fuelImportTab = new Tab("Fuel Import", fuelImportTabContent);
         fuelImportTab.setClosable(false);
 
-        Tab payrollTab = new Tab("Payroll", new PayrollTab());
+        Tab payrollTab = new Tab("Payroll", new PayrollTab(employeeDAO,
+                new PayrollCalculator(employeeDAO, loadDAO, fuelDAO, feeAdvancesDAO)));
         payrollTab.setClosable(false);
 
-        Tab feesAdvancesTab = new Tab("Fees & Advances", new FeesAdvancesTab());
+        Tab feesAdvancesTab = new Tab("Fees & Advances", new FeesAdvancesTab(employeeDAO, feeAdvancesDAO));
         feesAdvancesTab.setClosable(false);
 
         tabPane.getTabs().addAll(employeesTab, loadsTab, fuelImportTab, feesAdvancesTab, payrollTab);
@@ -39,4 +59,9 @@ public class MainController {
     public TabPane getTabPane() {
         return tabPane;
     }
+
+    // Stops background work owned by the tabs, before the database is closed
+    public void shutdown() {
+        fuelImportTabContent.shutdown();
+    }
 }
\ No newline at end of file
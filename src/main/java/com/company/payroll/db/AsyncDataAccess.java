@@ -0,0 +1,118 @@
+package com.company.payroll.db;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ProgressIndicator;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs DAO calls off the JavaFX Application Thread.
+ *
+ * Work is executed on virtual threads (one per call; the connection pool bounds how many hit
+ * SQLite at once) and returned as a CompletableFuture. UI code normally goes through a Request,
+ * which delivers the result on the FX thread and drops results that were superseded or cancelled.
+ */
+public final class AsyncDataAccess {
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private AsyncDataAccess() {}
+
+    public static <T> CompletableFuture<T> supply(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, executor);
+    }
+
+    public static CompletableFuture<Void> run(Runnable work) {
+        return CompletableFuture.runAsync(work, executor);
+    }
+
+    /**
+     * Stops accepting new work. Called once when the application exits.
+     */
+    public static void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * A repeatable background request owned by one piece of UI (a table refresh, a calculation).
+     *
+     * Submitting again supersedes the previous call: only the most recent result is delivered.
+     * The running property is true while a call is outstanding, for binding progress indicators
+     * and disabling buttons. All callbacks run on the FX thread.
+     */
+    public static class Request<T> {
+        private final ReadOnlyBooleanWrapper running = new ReadOnlyBooleanWrapper(false);
+        private CompletableFuture<T> current;
+        private long generation = 0;
+
+        public ReadOnlyBooleanProperty runningProperty() {
+            return running.getReadOnlyProperty();
+        }
+
+        public boolean isRunning() {
+            return running.get();
+        }
+
+        /**
+         * A small spinner that is only visible while this request is running.
+         */
+        public ProgressIndicator newIndicator() {
+            ProgressIndicator indicator = new ProgressIndicator();
+            indicator.setMaxSize(20, 20);
+            indicator.setPrefSize(20, 20);
+            indicator.visibleProperty().bind(running);
+            return indicator;
+        }
+
+        public void submit(Supplier<T> work, Consumer<T> onSuccess) {
+            submit(work, onSuccess, Request::showError);
+        }
+
+        public void submit(Supplier<T> work, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+            if (current != null) current.cancel(false);
+            long id = ++generation;
+            running.set(true);
+            CompletableFuture<T> future = supply(work);
+            current = future;
+            future.whenComplete((result, error) -> Platform.runLater(() -> {
+                if (id != generation) return; // superseded or cancelled
+                current = null;
+                running.set(false);
+                if (error == null) {
+                    onSuccess.accept(result);
+                } else {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (!(cause instanceof CancellationException)) onError.accept(cause);
+                }
+            }));
+        }
+
+        /**
+         * Discards the outstanding call, if any. A query already running in SQLite finishes in the
+         * background, but its result is never delivered.
+         */
+        public void cancel() {
+            generation++;
+            if (current != null) {
+                current.cancel(false);
+                current = null;
+            }
+            running.set(false);
+        }
+
+        private static void showError(Throwable error) {
+            error.printStackTrace();
+            Alert a = new Alert(Alert.AlertType.ERROR, "Database operation failed: " + error.getMessage());
+            a.setHeaderText("Error");
+            a.show();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.company.payroll.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Central provider of SQLite connections for all DAOs.
+ *
+ * Keeps a small pool of long-lived connections opened in WAL mode with a busy timeout,
+ * so readers don't block the writer and concurrent writers wait instead of failing.
+ * Callers use the usual try-with-resources pattern; closing a connection returns it to
+ * the pool (and closes any statements/result sets that were opened on it).
+ */
+public final class DatabaseManager {
+    private static final Logger log = LoggerFactory.getLogger(DatabaseManager.class);
+
+    private static final String DB_URL = "jdbc:sqlite:payroll.db";
+    private static final int POOL_SIZE = Integer.getInteger("payroll.db.poolSize", 4);
+    private static final int BUSY_TIMEOUT_MS = Integer.getInteger("payroll.db.busyTimeoutMs", 10_000);
+    private static final long ACQUIRE_TIMEOUT_MS = 30_000;
+
+    private static final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+    private static int created = 0;
+    private static boolean shutdown = false;
+
+    private DatabaseManager() {}
+
+    /**
+     * Borrows a connection from the pool, opening a new one if the pool isn't full yet.
+     * Always close the returned connection (try-with-resources) to give it back.
+     */
+    public static Connection getConnection() throws SQLException {
+        Connection physical = idle.poll();
+        if (physical == null) {
+            physical = openIfBelowLimit();
+        }
+        if (physical == null) {
+            try {
+                physical = idle.poll(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            if (physical == null) {
+                throw new SQLException("Timed out waiting for a database connection");
+            }
+        }
+        return wrap(physical);
+    }
+
+    /**
+     * Closes all idle connections. Called once when the application exits.
+     */
+    public static void shutdown() {
+        synchronized (DatabaseManager.class) {
+            shutdown = true;
+        }
+        Connection c;
+        while ((c = idle.poll()) != null) {
+            closeQuietly(c);
+        }
+    }
+
+    private static Connection openIfBelowLimit() throws SQLException {
+        int number;
+        synchronized (DatabaseManager.class) {
+            if (shutdown) throw new SQLException("Database has been shut down");
+            if (created >= POOL_SIZE) return null;
+            number = ++created;
+        }
+        try {
+            Connection conn = DriverManager.getConnection(DB_URL);
+            try (Statement st = conn.createStatement()) {
+                st.execute("PRAGMA journal_mode=WAL");
+                st.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MS);
+                st.execute("PRAGMA synchronous=NORMAL");
+            }
+            log.debug("Opened pooled SQLite connection ({} of {})", number, POOL_SIZE);
+            return conn;
+        } catch (SQLException e) {
+            synchronized (DatabaseManager.class) {
+                created--;
+            }
+            throw e;
+        }
+    }
+
+    private static void release(Connection physical, boolean broken) {
+        boolean discard = broken;
+        synchronized (DatabaseManager.class) {
+            if (shutdown) discard = true;
+            if (discard) created--;
+        }
+        if (discard) {
+            closeQuietly(physical);
+        } else {
+            idle.offer(physical);
+        }
+    }
+
+    private static void closeQuietly(Connection c) {
+        try {
+            c.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                DatabaseManager.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(physical));
+    }
+
+    /**
+     * Hands calls through to the physical connection, but turns close() into
+     * "clean up and return to the pool".
+     */
+    private static final class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private final List<Statement> statements = new ArrayList<>();
+        private boolean closed = false;
+
+        PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(physical, !resetForReuse());
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            Object result;
+            try {
+                result = method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                statements.add((Statement) result);
+            }
+            return result;
+        }
+
+        // Closes leftover statements and ends any open transaction; returns false if the connection is unusable.
+        private boolean resetForReuse() {
+            for (Statement st : statements) {
+                try {
+                    st.close();
+                } catch (SQLException ignore) {
+                    // Statement already unusable, nothing else to release
+                }
+            }
+            statements.clear();
+            try {
+                if (physical.isClosed()) return false;
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                return true;
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+    }
+}
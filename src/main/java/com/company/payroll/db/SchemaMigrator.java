@@ -0,0 +1,385 @@
+package com.company.payroll.db;
+
+import com.company.payroll.fuel.FuelDates;
+import com.company.payroll.fuel.FuelDedupFilter;
+import com.company.payroll.loads.Load;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Versioned schema migrations for payroll.db.
+ *
+ * Applied versions are recorded in the schema_version table; on start-up every migration with a
+ * higher version runs in order, each in its own transaction. New schema changes are added as a
+ * new entry at the end of MIGRATIONS, never by editing an existing one.
+ */
+public final class SchemaMigrator {
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    @FunctionalInterface
+    interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "Base tables", SchemaMigrator::createBaseTables),
+        new Migration(2, "Indexes for payroll and search predicates", conn -> execute(conn,
+            "CREATE INDEX IF NOT EXISTS idx_loads_driver_delivery ON loads(driver_id, delivery_date)",
+            "CREATE INDEX IF NOT EXISTS idx_loads_delivery ON loads(delivery_date)",
+            "CREATE INDEX IF NOT EXISTS idx_fuel_driver_unit_date ON fuel_transactions(driver_name, unit, tran_date)",
+            "CREATE INDEX IF NOT EXISTS idx_fuel_tran_date ON fuel_transactions(tran_date)",
+            "CREATE INDEX IF NOT EXISTS idx_fees_driver_period ON recurring_fees(driver_id, fee_year, fee_month)",
+            "CREATE INDEX IF NOT EXISTS idx_advances_driver_given ON cash_advances(driver_id, given_date)"
+        )),
+        new Migration(3, "Normalized fuel transaction day", SchemaMigrator::addFuelTranDay),
+        new Migration(4, "Fuel transaction dedup key", SchemaMigrator::addFuelDedupKey),
+        new Migration(5, "Import log of ingested files", conn -> execute(conn, """
+            CREATE TABLE IF NOT EXISTS import_log (
+                file_hash TEXT PRIMARY KEY,
+                file_name TEXT NOT NULL,
+                rows_inserted INTEGER NOT NULL,
+                rows_skipped INTEGER NOT NULL,
+                imported_at TEXT NOT NULL DEFAULT (datetime('now'))
+            )
+        """)),
+        new Migration(6, "Checkpoints of running imports", conn -> execute(conn, """
+            CREATE TABLE IF NOT EXISTS import_jobs (
+                file_hash TEXT PRIMARY KEY,
+                file_name TEXT NOT NULL,
+                byte_offset INTEGER NOT NULL DEFAULT 0,
+                rows_done INTEGER NOT NULL DEFAULT 0,
+                rows_inserted INTEGER NOT NULL DEFAULT 0,
+                rows_skipped INTEGER NOT NULL DEFAULT 0,
+                status TEXT NOT NULL,
+                started_at TEXT NOT NULL DEFAULT (datetime('now')),
+                updated_at TEXT NOT NULL DEFAULT (datetime('now'))
+            )
+        """)),
+        new Migration(7, "Import batches", SchemaMigrator::addImportBatches),
+        new Migration(8, "Full-text index of loads", SchemaMigrator::addLoadsFullText),
+        new Migration(9, "Normalized load numbers", SchemaMigrator::addLoadNumberNorm)
+    );
+
+    private static boolean migrated = false;
+
+    private SchemaMigrator() {}
+
+    /**
+     * Brings the schema up to the latest version. Safe to call repeatedly; only the first call
+     * in a process touches the database.
+     */
+    public static synchronized void migrate() {
+        if (migrated) return;
+        try (Connection conn = DatabaseManager.getConnection()) {
+            execute(conn, """
+                CREATE TABLE IF NOT EXISTS schema_version (
+                    version INTEGER PRIMARY KEY,
+                    description TEXT NOT NULL,
+                    applied_at TEXT NOT NULL DEFAULT (datetime('now'))
+                )
+            """);
+            int current = currentVersion(conn);
+            for (Migration m : MIGRATIONS) {
+                if (m.version <= current) continue;
+                apply(conn, m);
+            }
+            migrated = true;
+        } catch (SQLException e) {
+            throw new RuntimeException("Database migration failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static int currentVersion(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void apply(Connection conn, Migration m) throws SQLException {
+        long start = System.nanoTime();
+        conn.setAutoCommit(false);
+        try {
+            m.step.apply(conn);
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                ps.setInt(1, m.version);
+                ps.setString(2, m.description);
+                ps.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        log.info("Applied schema migration {} ({}) in {} ms", m.version, m.description, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ---------------- Migration steps ----------------
+
+    private static void createBaseTables(Connection conn) throws SQLException {
+        execute(conn, """
+            CREATE TABLE IF NOT EXISTS employees (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                name TEXT NOT NULL,
+                truck_unit TEXT,
+                driver_percent REAL,
+                company_percent REAL,
+                service_fee_percent REAL,
+                dob DATE,
+                license_number TEXT,
+                driver_type TEXT,
+                employee_llc TEXT,
+                cdl_expiry DATE,
+                medical_expiry DATE,
+                status TEXT
+            )
+        """, """
+            CREATE TABLE IF NOT EXISTS loads (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                load_number TEXT NOT NULL UNIQUE,
+                customer TEXT,
+                pick_up_location TEXT,
+                drop_location TEXT,
+                driver_id INTEGER,
+                status TEXT,
+                gross_amount REAL,
+                notes TEXT,
+                delivery_date DATE,
+                FOREIGN KEY(driver_id) REFERENCES employees(id)
+            )
+        """, """
+            CREATE TABLE IF NOT EXISTS fuel_transactions (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                card_number TEXT,
+                tran_date TEXT,
+                tran_time TEXT,
+                invoice TEXT,
+                unit TEXT,
+                driver_name TEXT,
+                odometer TEXT,
+                location_name TEXT,
+                city TEXT,
+                state_prov TEXT,
+                fees REAL,
+                item TEXT,
+                unit_price REAL,
+                disc_ppu REAL,
+                disc_cost REAL,
+                qty REAL,
+                disc_amt REAL,
+                disc_type TEXT,
+                amt REAL,
+                db TEXT,
+                currency TEXT,
+                employee_id INTEGER,
+                UNIQUE(invoice, tran_date, location_name, amt)
+            )
+        """, """
+            CREATE TABLE IF NOT EXISTS recurring_fees (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                driver_id INTEGER NOT NULL,
+                fee_type TEXT NOT NULL,
+                amount REAL NOT NULL,
+                start_date DATE NOT NULL,
+                total_weeks INTEGER NOT NULL,
+                weeks_remaining INTEGER NOT NULL,
+                active INTEGER NOT NULL DEFAULT 1,
+                fee_month INTEGER,
+                fee_year INTEGER,
+                FOREIGN KEY(driver_id) REFERENCES employees(id)
+            )
+        """, """
+            CREATE TABLE IF NOT EXISTS cash_advances (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                driver_id INTEGER NOT NULL,
+                amount REAL NOT NULL,
+                given_date DATE NOT NULL,
+                due_date DATE NOT NULL,
+                payment_weeks INTEGER NOT NULL,
+                weeks_remaining INTEGER NOT NULL,
+                active INTEGER NOT NULL DEFAULT 1,
+                FOREIGN KEY(driver_id) REFERENCES employees(id)
+            )
+        """);
+        // Databases created by older versions may predate these columns
+        addColumnIfNotExists(conn, "loads", "delivery_date", "DATE");
+        addColumnIfNotExists(conn, "recurring_fees", "fee_month", "INTEGER");
+        addColumnIfNotExists(conn, "recurring_fees", "fee_year", "INTEGER");
+    }
+
+    // tran_date is free-form text from the card export; tran_day holds it as an epoch day so
+    // range queries compare integers and can use an index. Unparseable dates stay NULL.
+    private static void addFuelTranDay(Connection conn) throws SQLException {
+        addColumnIfNotExists(conn, "fuel_transactions", "tran_day", "INTEGER");
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery("SELECT id, tran_date FROM fuel_transactions WHERE tran_day IS NULL");
+             PreparedStatement update = conn.prepareStatement("UPDATE fuel_transactions SET tran_day = ? WHERE id = ?")) {
+            int pending = 0;
+            while (rs.next()) {
+                Long day = FuelDates.toEpochDay(rs.getString("tran_date"));
+                if (day == null) continue;
+                update.setLong(1, day);
+                update.setInt(2, rs.getInt("id"));
+                update.addBatch();
+                if (++pending == 1000) {
+                    update.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) update.executeBatch();
+        }
+        execute(conn,
+            "DROP INDEX IF EXISTS idx_fuel_driver_unit_date",
+            "DROP INDEX IF EXISTS idx_fuel_tran_date",
+            "CREATE INDEX IF NOT EXISTS idx_fuel_driver_unit_day ON fuel_transactions(driver_name, unit, tran_day)",
+            "CREATE INDEX IF NOT EXISTS idx_fuel_tran_day ON fuel_transactions(tran_day)");
+    }
+
+    // dedup_key is the normalized invoice/date/location/amount used for duplicate checks. The
+    // (tran_day, dedup_key) index covers the per-day key loads of an import and replaces the
+    // plain tran_day index.
+    private static void addFuelDedupKey(Connection conn) throws SQLException {
+        addColumnIfNotExists(conn, "fuel_transactions", "dedup_key", "TEXT");
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery("SELECT id, invoice, tran_date, location_name, amt FROM fuel_transactions WHERE dedup_key IS NULL");
+             PreparedStatement update = conn.prepareStatement("UPDATE fuel_transactions SET dedup_key = ? WHERE id = ?")) {
+            int pending = 0;
+            while (rs.next()) {
+                update.setString(1, FuelDedupFilter.key(rs.getString("invoice"), rs.getString("tran_date"),
+                        rs.getString("location_name"), rs.getDouble("amt")));
+                update.setInt(2, rs.getInt("id"));
+                update.addBatch();
+                if (++pending == 1000) {
+                    update.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) update.executeBatch();
+        }
+        execute(conn,
+            "DROP INDEX IF EXISTS idx_fuel_tran_day",
+            "CREATE INDEX IF NOT EXISTS idx_fuel_day_dedup ON fuel_transactions(tran_day, dedup_key)",
+            "CREATE INDEX IF NOT EXISTS idx_fuel_dedup_key ON fuel_transactions(dedup_key)");
+    }
+
+    // Every import gets a batch id on its rows, so a whole import can be removed with one indexed DELETE
+    private static void addImportBatches(Connection conn) throws SQLException {
+        execute(conn, """
+            CREATE TABLE IF NOT EXISTS import_batches (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                file_name TEXT NOT NULL,
+                file_hash TEXT,
+                started_at TEXT NOT NULL DEFAULT (datetime('now')),
+                rolled_back_at TEXT
+            )
+        """);
+        addColumnIfNotExists(conn, "fuel_transactions", "import_batch_id", "INTEGER");
+        addColumnIfNotExists(conn, "import_jobs", "batch_id", "INTEGER");
+        execute(conn, "CREATE INDEX IF NOT EXISTS idx_fuel_import_batch ON fuel_transactions(import_batch_id)");
+    }
+
+    // loads_fts is an external-content FTS5 index over the loads text columns: it stores only the
+    // index, the text stays in loads. Triggers keep it in sync; status-only updates don't touch it.
+    private static void addLoadsFullText(Connection conn) throws SQLException {
+        execute(conn, """
+            CREATE VIRTUAL TABLE IF NOT EXISTS loads_fts USING fts5(
+                load_number, customer, pick_up_location, drop_location, notes,
+                content='loads', content_rowid='id',
+                tokenize='unicode61 remove_diacritics 2', prefix='2 3'
+            )
+        """, """
+            CREATE TRIGGER IF NOT EXISTS loads_fts_insert AFTER INSERT ON loads BEGIN
+                INSERT INTO loads_fts (rowid, load_number, customer, pick_up_location, drop_location, notes)
+                VALUES (new.id, new.load_number, new.customer, new.pick_up_location, new.drop_location, new.notes);
+            END
+        """, """
+            CREATE TRIGGER IF NOT EXISTS loads_fts_delete AFTER DELETE ON loads BEGIN
+                INSERT INTO loads_fts (loads_fts, rowid, load_number, customer, pick_up_location, drop_location, notes)
+                VALUES ('delete', old.id, old.load_number, old.customer, old.pick_up_location, old.drop_location, old.notes);
+            END
+        """, """
+            CREATE TRIGGER IF NOT EXISTS loads_fts_update
+            AFTER UPDATE OF load_number, customer, pick_up_location, drop_location, notes ON loads
+            WHEN old.load_number IS NOT new.load_number OR old.customer IS NOT new.customer
+                OR old.pick_up_location IS NOT new.pick_up_location OR old.drop_location IS NOT new.drop_location
+                OR old.notes IS NOT new.notes
+            BEGIN
+                INSERT INTO loads_fts (loads_fts, rowid, load_number, customer, pick_up_location, drop_location, notes)
+                VALUES ('delete', old.id, old.load_number, old.customer, old.pick_up_location, old.drop_location, old.notes);
+                INSERT INTO loads_fts (rowid, load_number, customer, pick_up_location, drop_location, notes)
+                VALUES (new.id, new.load_number, new.customer, new.pick_up_location, new.drop_location, new.notes);
+            END
+        """,
+            "INSERT INTO loads_fts (loads_fts) VALUES ('rebuild')");
+    }
+
+    // load_number_norm is the load number as compared for duplicates (Load.normalize: trimmed,
+    // lower case), so LoadDAO's case-insensitive duplicate check is an index lookup. The index
+    // is not UNIQUE because older databases may already hold numbers differing only in case.
+    private static void addLoadNumberNorm(Connection conn) throws SQLException {
+        addColumnIfNotExists(conn, "loads", "load_number_norm", "TEXT");
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery("SELECT id, load_number FROM loads WHERE load_number_norm IS NULL");
+             PreparedStatement update = conn.prepareStatement("UPDATE loads SET load_number_norm = ? WHERE id = ?")) {
+            int pending = 0;
+            while (rs.next()) {
+                update.setString(1, Load.normalize(rs.getString("load_number")));
+                update.setInt(2, rs.getInt("id"));
+                update.addBatch();
+                if (++pending == 1000) {
+                    update.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) update.executeBatch();
+        }
+        execute(conn, "CREATE INDEX IF NOT EXISTS idx_loads_number_norm ON loads(load_number_norm)");
+    }
+
+    // ---------------- Helpers ----------------
+
+    static void execute(Connection conn, String... statements) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            for (String sql : statements) {
+                st.execute(sql);
+            }
+        }
+    }
+
+    static void addColumnIfNotExists(Connection conn, String table, String column, String type) throws SQLException {
+        if (!columnExists(conn, table, column)) {
+            execute(conn, "ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+        }
+    }
+
+    static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,5 +1,7 @@
 package com.company.payroll.employees;
 
+import com.company.payroll.db.DatabaseManager;
+import com.company.payroll.db.SchemaMigrator;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
@@ -9,32 +11,14 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class EmployeeDAO {
-    private static final String DB_URL = "jdbc:sqlite:payroll.db";
+    private static final String[] COLUMNS = {
+        "id", "name", "truck_unit", "driver_percent", "company_percent", "service_fee_percent", "dob",
+        "license_number", "driver_type", "employee_llc", "cdl_expiry", "medical_expiry", "status"
+    };
 
     public EmployeeDAO() {
-        // Create table if not exists
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            String sql = """
-                CREATE TABLE IF NOT EXISTS employees (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    name TEXT NOT NULL,
-                    truck_unit TEXT,
-                    driver_percent REAL,
-                    company_percent REAL,
-                    service_fee_percent REAL,
-                    dob DATE,
-                    license_number TEXT,
-                    driver_type TEXT,
-                    employee_llc TEXT,
-                    cdl_expiry DATE,
-                    medical_expiry DATE,
-                    status TEXT
-                );
-            """;
-            conn.createStatement().execute(sql);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        // Tables and indexes are created by SchemaMigrator; only the first call touches the database
+        SchemaMigrator.migrate();
     }
 
     /**
@@ -43,7 +27,7 @@ public class EmployeeDAO {
      */
     public List<Employee> getAll() {
         List<Employee> list = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             String sql = "SELECT * FROM employees ORDER BY name COLLATE NOCASE";
             ResultSet rs = conn.createStatement().executeQuery(sql);
             while (rs.next()) {
@@ -69,7 +53,7 @@ public class EmployeeDAO {
      */
     public List<Employee> getActive() {
         List<Employee> list = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             String sql = "SELECT * FROM employees WHERE status = ? ORDER BY name COLLATE NOCASE";
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setString(1, Employee.Status.ACTIVE.name());
@@ -89,7 +73,7 @@ public class EmployeeDAO {
             (name, truck_unit, driver_percent, company_percent, service_fee_percent, dob, license_number, driver_type, employee_llc, cdl_expiry, medical_expiry, status) 
             VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
         """;
-        try (Connection conn = DriverManager.getConnection(DB_URL);
+        try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             setParams(ps, emp);
             ps.executeUpdate();
@@ -107,7 +91,7 @@ public class EmployeeDAO {
                 name=?, truck_unit=?, driver_percent=?, company_percent=?, service_fee_percent=?, dob=?, license_number=?, driver_type=?, employee_llc=?, cdl_expiry=?, medical_expiry=?, status=?
             WHERE id=?
         """;
-        try (Connection conn = DriverManager.getConnection(DB_URL);
+        try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             setParams(ps, emp);
             ps.setInt(13, emp.getId());
@@ -119,7 +103,7 @@ public class EmployeeDAO {
 
     public void delete(int id) {
         String sql = "DELETE FROM employees WHERE id=?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
+        try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             ps.executeUpdate();
@@ -130,7 +114,7 @@ public class EmployeeDAO {
 
     public Employee getById(int id) {
         String sql = "SELECT * FROM employees WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
+        try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             ResultSet rs = ps.executeQuery();
@@ -143,25 +127,45 @@ public class EmployeeDAO {
         return null;
     }
 
-    // Helper to map ResultSet row to Employee
-    private Employee mapRow(ResultSet rs) throws SQLException {
+    /**
+     * Select-list for joining employees into another query, e.g. prefixedColumns("e", "e_")
+     * gives "e.id AS e_id, e.name AS e_name, ...". Rows are read back with mapRow(rs, prefix).
+     */
+    public static String prefixedColumns(String tableAlias, String prefix) {
+        StringBuilder sb = new StringBuilder();
+        for (String col : COLUMNS) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(tableAlias).append('.').append(col).append(" AS ").append(prefix).append(col);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Maps an employee whose columns were selected with the given prefix (see prefixedColumns).
+     */
+    public static Employee mapRow(ResultSet rs, String prefix) throws SQLException {
         return new Employee(
-            rs.getInt("id"),
-            rs.getString("name"),
-            rs.getString("truck_unit"),
-            rs.getDouble("driver_percent"),
-            rs.getDouble("company_percent"),
-            rs.getDouble("service_fee_percent"),
-            rs.getObject("dob") != null ? rs.getDate("dob").toLocalDate() : null,
-            rs.getString("license_number"),
-            rs.getString("driver_type") != null ? Employee.DriverType.valueOf(rs.getString("driver_type")) : null,
-            rs.getString("employee_llc"),
-            rs.getObject("cdl_expiry") != null ? rs.getDate("cdl_expiry").toLocalDate() : null,
-            rs.getObject("medical_expiry") != null ? rs.getDate("medical_expiry").toLocalDate() : null,
-            rs.getString("status") != null ? Employee.Status.valueOf(rs.getString("status")) : null
+            rs.getInt(prefix + "id"),
+            rs.getString(prefix + "name"),
+            rs.getString(prefix + "truck_unit"),
+            rs.getDouble(prefix + "driver_percent"),
+            rs.getDouble(prefix + "company_percent"),
+            rs.getDouble(prefix + "service_fee_percent"),
+            rs.getObject(prefix + "dob") != null ? rs.getDate(prefix + "dob").toLocalDate() : null,
+            rs.getString(prefix + "license_number"),
+            rs.getString(prefix + "driver_type") != null ? Employee.DriverType.valueOf(rs.getString(prefix + "driver_type")) : null,
+            rs.getString(prefix + "employee_llc"),
+            rs.getObject(prefix + "cdl_expiry") != null ? rs.getDate(prefix + "cdl_expiry").toLocalDate() : null,
+            rs.getObject(prefix + "medical_expiry") != null ? rs.getDate(prefix + "medical_expiry").toLocalDate() : null,
+            rs.getString(prefix + "status") != null ? Employee.Status.valueOf(rs.getString(prefix + "status")) : null
         );
     }
 
+    // Helper to map ResultSet row to Employee
+    private Employee mapRow(ResultSet rs) throws SQLException {
+        return mapRow(rs, "");
+    }
+
     // Helper to set parameters for PreparedStatement
     private void setParams(PreparedStatement ps, Employee emp) throws SQLException {
         ps.setString(1, emp.getName());
@@ -19,7 +19,7 @@ import java.util.Locale;
 
 public class EmployeesTab extends BorderPane {
     private final ObservableList<Employee> employees = FXCollections.observableArrayList();
-    private final EmployeeDAO dao = new EmployeeDAO();
+    private final EmployeeDAO dao;
 
     // Listeners for employee data changed events
     public interface EmployeeDataChangeListener {
@@ -27,7 +27,9 @@ public class EmployeesTab extends BorderPane {
     }
     private final List<EmployeeDataChangeListener> listeners = new ArrayList<>();
 
-    public EmployeesTab() {
+    public EmployeesTab(EmployeeDAO dao) {
+        this.dao = dao;
+
         // Load from DB on startup
         employees.setAll(dao.getAll());
 
@@ -1,94 +1,45 @@
 package com.company.payroll.feesadvances;
 
+import com.company.payroll.db.DatabaseManager;
+import com.company.payroll.db.SchemaMigrator;
 import com.company.payroll.employees.Employee;
 import com.company.payroll.employees.EmployeeDAO;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FeeAdvancesDAO {
 
-    private static final String DB_URL = "jdbc:sqlite:payroll.db";
-    private final EmployeeDAO employeeDAO = new EmployeeDAO();
+    // Fees and advances are read together with their driver in one query
+    private static final String SELECT_FEES =
+            "SELECT f.*, " + EmployeeDAO.prefixedColumns("e", "e_") +
+            " FROM recurring_fees f LEFT JOIN employees e ON e.id = f.driver_id";
+    private static final String SELECT_CASH_ADVANCES =
+            "SELECT c.*, " + EmployeeDAO.prefixedColumns("e", "e_") +
+            " FROM cash_advances c LEFT JOIN employees e ON e.id = c.driver_id";
 
     public FeeAdvancesDAO() {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            // --- Recurring Fees Table ---
-            conn.createStatement().execute("""
-                CREATE TABLE IF NOT EXISTS recurring_fees (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    driver_id INTEGER NOT NULL,
-                    fee_type TEXT NOT NULL,
-                    amount REAL NOT NULL,
-                    start_date DATE NOT NULL,
-                    total_weeks INTEGER NOT NULL,
-                    weeks_remaining INTEGER NOT NULL,
-                    active INTEGER NOT NULL DEFAULT 1,
-                    fee_month INTEGER,
-                    fee_year INTEGER,
-                    FOREIGN KEY(driver_id) REFERENCES employees(id)
-                );
-            """);
-            // --- Cash Advances Table ---
-            conn.createStatement().execute("""
-                CREATE TABLE IF NOT EXISTS cash_advances (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    driver_id INTEGER NOT NULL,
-                    amount REAL NOT NULL,
-                    given_date DATE NOT NULL,
-                    due_date DATE NOT NULL,
-                    payment_weeks INTEGER NOT NULL,
-                    weeks_remaining INTEGER NOT NULL,
-                    active INTEGER NOT NULL DEFAULT 1,
-                    FOREIGN KEY(driver_id) REFERENCES employees(id)
-                );
-            """);
-            // Add columns fee_month and fee_year if DB already exists
-            addColumnIfNotExists(conn, "recurring_fees", "fee_month", "INTEGER");
-            addColumnIfNotExists(conn, "recurring_fees", "fee_year", "INTEGER");
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void addColumnIfNotExists(Connection conn, String table, String column, String type) throws SQLException {
-        DatabaseMetaData dbm = conn.getMetaData();
-        ResultSet rs = dbm.getColumns(null, null, table, column);
-        if (!rs.next()) {
-            conn.createStatement().execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
-        }
-        rs.close();
+        // Tables and indexes are created by SchemaMigrator; only the first call touches the database
+        SchemaMigrator.migrate();
     }
 
     // ------------- FEES CRUD --------------
 
     public List<FeesAdvancesTab.FeeEntry> getAllFees() {
-        List<FeesAdvancesTab.FeeEntry> list = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            ResultSet rs = conn.createStatement().executeQuery("SELECT * FROM recurring_fees");
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                int driverId = rs.getInt("driver_id");
-                Employee driver = employeeDAO.getById(driverId);
-                FeesAdvancesTab.FeeType feeType = FeesAdvancesTab.FeeType.valueOf(rs.getString("fee_type"));
-                double amount = rs.getDouble("amount");
-                LocalDate startDate = rs.getDate("start_date").toLocalDate();
-                int totalWeeks = rs.getInt("total_weeks");
-                int weeksRemaining = rs.getInt("weeks_remaining");
-                boolean active = rs.getInt("active") == 1;
-                int feeMonth = rs.getObject("fee_month") != null ? rs.getInt("fee_month") : startDate.getMonthValue();
-                int feeYear = rs.getObject("fee_year") != null ? rs.getInt("fee_year") : startDate.getYear();
-                FeesAdvancesTab.FeeEntry entry = new FeesAdvancesTab.FeeEntry(
-                    id, driver, feeType, amount, totalWeeks, weeksRemaining, startDate, active, feeMonth, feeYear
-                );
-                list.add(entry);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return list;
+        return queryFees(SELECT_FEES);
+    }
+
+    /**
+     * Returns active fees that may apply to the given fee month/year, for all drivers at once.
+     * Rows without fee_month/fee_year (older databases) are included; callers match those on start date.
+     */
+    public List<FeesAdvancesTab.FeeEntry> getActiveFeesForMonth(int feeMonth, int feeYear) {
+        return queryFees(SELECT_FEES + " WHERE f.active = 1 AND ((f.fee_month = ? AND f.fee_year = ?) OR f.fee_month IS NULL OR f.fee_year IS NULL)",
+                feeMonth, feeYear);
     }
 
     /**
@@ -96,7 +47,7 @@ public class FeeAdvancesDAO {
      */
     public boolean feeExists(int driverId, FeesAdvancesTab.FeeType feeType, int feeMonth, int feeYear) {
         String sql = "SELECT COUNT(*) FROM recurring_fees WHERE driver_id=? AND fee_type=? AND fee_month=? AND fee_year=?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
+        try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, driverId);
             ps.setString(2, feeType.name());
@@ -112,7 +63,7 @@ public class FeeAdvancesDAO {
 
     public void addFee(FeesAdvancesTab.FeeEntry fee) {
         String sql = "INSERT INTO recurring_fees (driver_id, fee_type, amount, start_date, total_weeks, weeks_remaining, active, fee_month, fee_year) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setInt(1, fee.getDriver().getId());
             ps.setString(2, fee.getFeeType().name());
@@ -131,7 +82,7 @@ public class FeeAdvancesDAO {
 
     public void updateFee(FeesAdvancesTab.FeeEntry fee, int id) {
         String sql = "UPDATE recurring_fees SET driver_id=?, fee_type=?, amount=?, start_date=?, total_weeks=?, weeks_remaining=?, active=?, fee_month=?, fee_year=? WHERE id=?";
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setInt(1, fee.getDriver().getId());
             ps.setString(2, fee.getFeeType().name());
@@ -151,7 +102,7 @@ public class FeeAdvancesDAO {
 
     public void deleteFee(int id) {
         String sql = "DELETE FROM recurring_fees WHERE id=?";
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setInt(1, id);
             ps.executeUpdate();
@@ -163,33 +114,19 @@ public class FeeAdvancesDAO {
     // ------------- CASH ADVANCES CRUD --------------
 
     public List<FeesAdvancesTab.CashAdvanceEntry> getAllCashAdvances() {
-        List<FeesAdvancesTab.CashAdvanceEntry> list = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            ResultSet rs = conn.createStatement().executeQuery("SELECT * FROM cash_advances");
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                int driverId = rs.getInt("driver_id");
-                Employee driver = employeeDAO.getById(driverId);
-                double amount = rs.getDouble("amount");
-                LocalDate givenDate = rs.getDate("given_date").toLocalDate();
-                LocalDate dueDate = rs.getDate("due_date").toLocalDate();
-                int paymentWeeks = rs.getInt("payment_weeks");
-                int weeksRemaining = rs.getInt("weeks_remaining");
-                boolean active = rs.getInt("active") == 1;
-                FeesAdvancesTab.CashAdvanceEntry entry = new FeesAdvancesTab.CashAdvanceEntry(
-                    id, driver, amount, givenDate, dueDate, paymentWeeks, weeksRemaining, active
-                );
-                list.add(entry);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return list;
+        return queryCashAdvances(SELECT_CASH_ADVANCES);
+    }
+
+    /**
+     * Returns all active cash advances for all drivers.
+     */
+    public List<FeesAdvancesTab.CashAdvanceEntry> getActiveCashAdvances() {
+        return queryCashAdvances(SELECT_CASH_ADVANCES + " WHERE c.active = 1");
     }
 
     public void addCashAdvance(FeesAdvancesTab.CashAdvanceEntry advance) {
         String sql = "INSERT INTO cash_advances (driver_id, amount, given_date, due_date, payment_weeks, weeks_remaining, active) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setInt(1, advance.getDriver().getId());
             ps.setDouble(2, advance.getAmount());
@@ -206,7 +143,7 @@ public class FeeAdvancesDAO {
 
     public void updateCashAdvance(FeesAdvancesTab.CashAdvanceEntry advance, int id) {
         String sql = "UPDATE cash_advances SET driver_id=?, amount=?, given_date=?, due_date=?, payment_weeks=?, weeks_remaining=?, active=? WHERE id=?";
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setInt(1, advance.getDriver().getId());
             ps.setDouble(2, advance.getAmount());
@@ -224,7 +161,7 @@ public class FeeAdvancesDAO {
 
     public void deleteCashAdvance(int id) {
         String sql = "DELETE FROM cash_advances WHERE id=?";
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setInt(1, id);
             ps.executeUpdate();
@@ -236,16 +173,36 @@ public class FeeAdvancesDAO {
     // ----------------- ADVANCED SEARCH FOR FEES ---------------------
 
     public List<FeesAdvancesTab.FeeEntry> searchFees(Integer driverId, Integer month, Integer year) {
+        StringBuilder sb = new StringBuilder(SELECT_FEES + " WHERE 1=1");
+        if (driverId != null) sb.append(" AND f.driver_id=").append(driverId);
+        if (month != null) sb.append(" AND f.fee_month=").append(month);
+        if (year != null) sb.append(" AND f.fee_year=").append(year);
+        return queryFees(sb.toString());
+    }
+
+    // ----------------- ADVANCED SEARCH FOR CASH ADVANCES ---------------------
+
+    public List<FeesAdvancesTab.CashAdvanceEntry> searchCashAdvances(Integer driverId, LocalDate from, LocalDate to) {
+        StringBuilder sb = new StringBuilder(SELECT_CASH_ADVANCES + " WHERE 1=1");
+        if (driverId != null) sb.append(" AND c.driver_id=").append(driverId);
+        if (from != null) sb.append(" AND c.given_date>='").append(from).append("'");
+        if (to != null) sb.append(" AND c.given_date<='").append(to).append("'");
+        return queryCashAdvances(sb.toString());
+    }
+
+    // ----------------- ROW MAPPING ---------------------
+
+    private List<FeesAdvancesTab.FeeEntry> queryFees(String sql, Object... params) {
         List<FeesAdvancesTab.FeeEntry> list = new ArrayList<>();
-        StringBuilder sb = new StringBuilder("SELECT * FROM recurring_fees WHERE 1=1");
-        if (driverId != null) sb.append(" AND driver_id=").append(driverId);
-        if (month != null) sb.append(" AND fee_month=").append(month);
-        if (year != null) sb.append(" AND fee_year=").append(year);
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            ResultSet rs = conn.createStatement().executeQuery(sb.toString());
+        try (Connection conn = DatabaseManager.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            for (int i = 0; i < params.length; ++i)
+                ps.setObject(i + 1, params[i]);
+            ResultSet rs = ps.executeQuery();
+            Map<Integer, Employee> drivers = new HashMap<>();
             while (rs.next()) {
                 int id = rs.getInt("id");
-                Employee driver = employeeDAO.getById(rs.getInt("driver_id"));
+                Employee driver = mapDriver(rs, drivers);
                 FeesAdvancesTab.FeeType feeType = FeesAdvancesTab.FeeType.valueOf(rs.getString("fee_type"));
                 double amount = rs.getDouble("amount");
                 LocalDate startDate = rs.getDate("start_date").toLocalDate();
@@ -255,7 +212,7 @@ public class FeeAdvancesDAO {
                 int feeMonth = rs.getObject("fee_month") != null ? rs.getInt("fee_month") : startDate.getMonthValue();
                 int feeYear = rs.getObject("fee_year") != null ? rs.getInt("fee_year") : startDate.getYear();
                 FeesAdvancesTab.FeeEntry entry = new FeesAdvancesTab.FeeEntry(
-                        id, driver, feeType, amount, totalWeeks, weeksRemaining, startDate, active, feeMonth, feeYear
+                    id, driver, feeType, amount, totalWeeks, weeksRemaining, startDate, active, feeMonth, feeYear
                 );
                 list.add(entry);
             }
@@ -265,19 +222,17 @@ public class FeeAdvancesDAO {
         return list;
     }
 
-    // ----------------- ADVANCED SEARCH FOR CASH ADVANCES ---------------------
-
-    public List<FeesAdvancesTab.CashAdvanceEntry> searchCashAdvances(Integer driverId, LocalDate from, LocalDate to) {
+    private List<FeesAdvancesTab.CashAdvanceEntry> queryCashAdvances(String sql, Object... params) {
         List<FeesAdvancesTab.CashAdvanceEntry> list = new ArrayList<>();
-        StringBuilder sb = new StringBuilder("SELECT * FROM cash_advances WHERE 1=1");
-        if (driverId != null) sb.append(" AND driver_id=").append(driverId);
-        if (from != null) sb.append(" AND given_date>='").append(from).append("'");
-        if (to != null) sb.append(" AND given_date<='").append(to).append("'");
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            ResultSet rs = conn.createStatement().executeQuery(sb.toString());
+        try (Connection conn = DatabaseManager.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            for (int i = 0; i < params.length; ++i)
+                ps.setObject(i + 1, params[i]);
+            ResultSet rs = ps.executeQuery();
+            Map<Integer, Employee> drivers = new HashMap<>();
             while (rs.next()) {
                 int id = rs.getInt("id");
-                Employee driver = employeeDAO.getById(rs.getInt("driver_id"));
+                Employee driver = mapDriver(rs, drivers);
                 double amount = rs.getDouble("amount");
                 LocalDate givenDate = rs.getDate("given_date").toLocalDate();
                 LocalDate dueDate = rs.getDate("due_date").toLocalDate();
@@ -285,7 +240,7 @@ public class FeeAdvancesDAO {
                 int weeksRemaining = rs.getInt("weeks_remaining");
                 boolean active = rs.getInt("active") == 1;
                 FeesAdvancesTab.CashAdvanceEntry entry = new FeesAdvancesTab.CashAdvanceEntry(
-                        id, driver, amount, givenDate, dueDate, paymentWeeks, weeksRemaining, active
+                    id, driver, amount, givenDate, dueDate, paymentWeeks, weeksRemaining, active
                 );
                 list.add(entry);
             }
@@ -294,4 +249,16 @@ public class FeeAdvancesDAO {
         }
         return list;
     }
+
+    // Per-query identity map: each distinct driver is built once per result set
+    private Employee mapDriver(ResultSet rs, Map<Integer, Employee> drivers) throws SQLException {
+        int driverId = rs.getInt("e_id");
+        if (rs.wasNull()) return null;
+        Employee driver = drivers.get(driverId);
+        if (driver == null) {
+            driver = EmployeeDAO.mapRow(rs, "e_");
+            drivers.put(driverId, driver);
+        }
+        return driver;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.company.payroll.feesadvances;
 
+import com.company.payroll.db.AsyncDataAccess;
 import com.company.payroll.employees.Employee;
 import com.company.payroll.employees.EmployeeDAO;
 import javafx.beans.property.SimpleDoubleProperty;
@@ -19,14 +20,19 @@ import java.util.*;
 
 public class FeesAdvancesTab extends BorderPane {
 
-    private final EmployeeDAO employeeDAO = new EmployeeDAO();
-    private final FeeAdvancesDAO feeAdvancesDAO = new FeeAdvancesDAO();
+    private final EmployeeDAO employeeDAO;
+    private final FeeAdvancesDAO feeAdvancesDAO;
     private ObservableList<Employee> allDrivers = FXCollections.observableArrayList();
 
     // Models
     private ObservableList<FeeEntry> allFeeEntries = FXCollections.observableArrayList();
     private ObservableList<CashAdvanceEntry> allCashAdvances = FXCollections.observableArrayList();
 
+    // Background loads; a newer refresh or search replaces a pending one
+    private final AsyncDataAccess.Request<List<FeeEntry>> feesRequest = new AsyncDataAccess.Request<>();
+    private final AsyncDataAccess.Request<List<CashAdvanceEntry>> advancesRequest = new AsyncDataAccess.Request<>();
+    private final AsyncDataAccess.Request<List<Employee>> driversRequest = new AsyncDataAccess.Request<>();
+
     private final DateTimeFormatter dateFmt = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     // Advanced search controls
@@ -38,11 +44,9 @@ public class FeesAdvancesTab extends BorderPane {
     private DatePicker cashSearchFromPicker;
     private DatePicker cashSearchToPicker;
 
-    public FeesAdvancesTab() {
-        allDrivers.setAll(employeeDAO.getAll());
-        allFeeEntries.setAll(feeAdvancesDAO.getAllFees());
-        allCashAdvances.setAll(feeAdvancesDAO.getAllCashAdvances());
-
+    public FeesAdvancesTab(EmployeeDAO employeeDAO, FeeAdvancesDAO feeAdvancesDAO) {
+        this.employeeDAO = employeeDAO;
+        this.feeAdvancesDAO = feeAdvancesDAO;
         TabPane tabPane = new TabPane();
         tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
 
@@ -56,15 +60,29 @@ public class FeesAdvancesTab extends BorderPane {
         tabPane.getSelectionModel().selectedItemProperty().addListener((obs, oldTab, newTab) -> refreshDriverComboBoxes());
 
         setCenter(tabPane);
+
+        reloadFees();
+        reloadCashAdvances();
+    }
+
+    private void reloadFees() {
+        feesRequest.submit(feeAdvancesDAO::getAllFees, allFeeEntries::setAll);
+    }
+
+    private void reloadCashAdvances() {
+        advancesRequest.submit(feeAdvancesDAO::getAllCashAdvances, allCashAdvances::setAll);
     }
 
     /**
      * Always refreshes the driver search ComboBoxes with the latest employees from the DB.
      */
     private void refreshDriverComboBoxes() {
-        ObservableList<Employee> freshDrivers = FXCollections.observableArrayList(employeeDAO.getAll());
-        if (feeSearchDriverBox != null) feeSearchDriverBox.setItems(freshDrivers);
-        if (cashSearchDriverBox != null) cashSearchDriverBox.setItems(freshDrivers);
+        driversRequest.submit(employeeDAO::getAll, drivers -> {
+            allDrivers.setAll(drivers);
+            ObservableList<Employee> freshDrivers = FXCollections.observableArrayList(drivers);
+            if (feeSearchDriverBox != null) feeSearchDriverBox.setItems(freshDrivers);
+            if (cashSearchDriverBox != null) cashSearchDriverBox.setItems(freshDrivers);
+        });
     }
 
     // ========== FEE MANAGEMENT ==========
@@ -84,7 +102,7 @@ public class FeesAdvancesTab extends BorderPane {
             @Override public Employee fromString(String s) { return null; }
         });
         // --- AUTO-REFRESH driver list when search ComboBox is clicked/opened ---
-        feeSearchDriverBox.setOnShowing(e -> feeSearchDriverBox.setItems(FXCollections.observableArrayList(employeeDAO.getAll())));
+        feeSearchDriverBox.setOnShowing(e -> refreshDriverComboBoxes());
 
         feeSearchMonthBox = new ComboBox<>(FXCollections.observableArrayList(Month.values()));
         feeSearchMonthBox.setPromptText("Month");
@@ -102,13 +120,13 @@ public class FeesAdvancesTab extends BorderPane {
             Integer driverId = feeSearchDriverBox.getValue() != null ? feeSearchDriverBox.getValue().getId() : null;
             Integer month = feeSearchMonthBox.getValue() != null ? feeSearchMonthBox.getValue().getValue() : null;
             Integer year = feeSearchYearSpinner.getValue();
-            allFeeEntries.setAll(feeAdvancesDAO.searchFees(driverId, month, year));
+            feesRequest.submit(() -> feeAdvancesDAO.searchFees(driverId, month, year), allFeeEntries::setAll);
         });
         clearBtn.setOnAction(e -> {
             feeSearchDriverBox.setValue(null);
             feeSearchMonthBox.setValue(null);
             feeSearchYearSpinner.getValueFactory().setValue(LocalDate.now().getYear());
-            allFeeEntries.setAll(feeAdvancesDAO.getAllFees());
+            reloadFees();
             refreshDriverComboBoxes();
         });
 
@@ -172,7 +190,7 @@ public class FeesAdvancesTab extends BorderPane {
             }
         });
         refreshBtn.setOnAction(e -> {
-            allFeeEntries.setAll(feeAdvancesDAO.getAllFees());
+            reloadFees();
             refreshDriverComboBoxes();
         });
         batchBtn.setOnAction(e -> showBatchFeeDialog());
@@ -180,7 +198,7 @@ public class FeesAdvancesTab extends BorderPane {
         // Always ensure drivers list is current at build
         refreshDriverComboBoxes();
 
-        HBox btnBox = new HBox(10, addBtn, editBtn, removeBtn, batchBtn, refreshBtn);
+        HBox btnBox = new HBox(10, addBtn, editBtn, removeBtn, batchBtn, refreshBtn, feesRequest.newIndicator());
         btnBox.setAlignment(Pos.CENTER_LEFT);
 
         root.getChildren().addAll(searchBox, table, btnBox);
@@ -304,7 +322,7 @@ public class FeesAdvancesTab extends BorderPane {
                         }
                     }
                 }
-                allFeeEntries.setAll(feeAdvancesDAO.getAllFees());
+                reloadFees();
                 refreshDriverComboBoxes();
                 Alert info = new Alert(Alert.AlertType.INFORMATION);
                 info.setHeaderText("Batch Fees Complete");
@@ -417,7 +435,7 @@ public class FeesAdvancesTab extends BorderPane {
                 if (isAdd) {
                     FeeEntry f = new FeeEntry(0, driver, type, amt, plan, plan, sDate, true, selectedMonth, selectedYear);
                     feeAdvancesDAO.addFee(f);
-                    allFeeEntries.setAll(feeAdvancesDAO.getAllFees());
+                    reloadFees();
                     refreshDriverComboBoxes();
                     return f;
                 } else {
@@ -431,7 +449,7 @@ public class FeesAdvancesTab extends BorderPane {
                     fee.setFeeMonth(selectedMonth);
                     fee.setFeeYear(selectedYear);
                     feeAdvancesDAO.updateFee(fee, fee.getId());
-                    allFeeEntries.setAll(feeAdvancesDAO.getAllFees());
+                    reloadFees();
                     refreshDriverComboBoxes();
                     return fee;
                 }
@@ -458,7 +476,7 @@ public class FeesAdvancesTab extends BorderPane {
             @Override public Employee fromString(String s) { return null; }
         });
         // --- AUTO-REFRESH driver list when search ComboBox is clicked/opened ---
-        cashSearchDriverBox.setOnShowing(e -> cashSearchDriverBox.setItems(FXCollections.observableArrayList(employeeDAO.getAll())));
+        cashSearchDriverBox.setOnShowing(e -> refreshDriverComboBoxes());
         cashSearchFromPicker = new DatePicker();
         cashSearchFromPicker.setPromptText("From");
         cashSearchToPicker = new DatePicker();
@@ -469,13 +487,13 @@ public class FeesAdvancesTab extends BorderPane {
             Integer driverId = cashSearchDriverBox.getValue() != null ? cashSearchDriverBox.getValue().getId() : null;
             LocalDate from = cashSearchFromPicker.getValue();
             LocalDate to = cashSearchToPicker.getValue();
-            allCashAdvances.setAll(feeAdvancesDAO.searchCashAdvances(driverId, from, to));
+            advancesRequest.submit(() -> feeAdvancesDAO.searchCashAdvances(driverId, from, to), allCashAdvances::setAll);
         });
         clearBtn.setOnAction(e -> {
             cashSearchDriverBox.setValue(null);
             cashSearchFromPicker.setValue(null);
             cashSearchToPicker.setValue(null);
-            allCashAdvances.setAll(feeAdvancesDAO.getAllCashAdvances());
+            reloadCashAdvances();
             refreshDriverComboBoxes();
         });
         searchBox.getChildren().addAll(new Label("Search:"), cashSearchDriverBox, cashSearchFromPicker, cashSearchToPicker, searchBtn, clearBtn);
@@ -531,14 +549,14 @@ public class FeesAdvancesTab extends BorderPane {
             }
         });
         refreshBtn.setOnAction(e -> {
-            allCashAdvances.setAll(feeAdvancesDAO.getAllCashAdvances());
+            reloadCashAdvances();
             refreshDriverComboBoxes();
         });
 
         // Always ensure drivers list is current at build
         refreshDriverComboBoxes();
 
-        HBox btnBox = new HBox(10, addBtn, editBtn, removeBtn, refreshBtn);
+        HBox btnBox = new HBox(10, addBtn, editBtn, removeBtn, refreshBtn, advancesRequest.newIndicator());
         btnBox.setAlignment(Pos.CENTER_LEFT);
         root.getChildren().addAll(searchBox, table, btnBox);
         return root;
@@ -622,7 +640,7 @@ public class FeesAdvancesTab extends BorderPane {
                 if (isAdd) {
                     CashAdvanceEntry ca = new CashAdvanceEntry(0, driver, amt, gDate, dDate, plan, plan, true);
                     feeAdvancesDAO.addCashAdvance(ca);
-                    allCashAdvances.setAll(feeAdvancesDAO.getAllCashAdvances());
+                    reloadCashAdvances();
                     refreshDriverComboBoxes();
                     return ca;
                 } else {
@@ -634,7 +652,7 @@ public class FeesAdvancesTab extends BorderPane {
                     adv.setWeeksRemaining(plan);
                     adv.setActive(true);
                     feeAdvancesDAO.updateCashAdvance(adv, adv.getId());
-                    allCashAdvances.setAll(feeAdvancesDAO.getAllCashAdvances());
+                    reloadCashAdvances();
                     refreshDriverComboBoxes();
                     return adv;
                 }
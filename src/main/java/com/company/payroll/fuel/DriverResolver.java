@@ -0,0 +1,131 @@
+package com.company.payroll.fuel;
+
+import com.company.payroll.employees.Employee;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Matches fuel transactions to employees in O(1) per row.
+ *
+ * The index is built once per import: employees keyed on normalized driver name + truck unit,
+ * plus fuel card numbers already linked to exactly one employee in earlier imports. Name + unit
+ * wins when it is unique; otherwise the card number decides. Rows that still can't be assigned
+ * are counted per name/unit so they can be reported together at the end of the import.
+ *
+ * Not thread-safe; use one instance per import.
+ */
+public class DriverResolver {
+    private final Map<String, List<Employee>> byNameAndUnit = new HashMap<>();
+    private final Map<String, Integer> byCard;
+
+    private final Map<String, Integer> unmatched = new LinkedHashMap<>();
+    private final Map<String, Integer> ambiguous = new LinkedHashMap<>();
+    private int matchedRows = 0;
+
+    public DriverResolver(List<Employee> employees) {
+        this(employees, Collections.emptyMap());
+    }
+
+    /**
+     * @param cardOwners card number to employee id, e.g. from FuelTransactionDAO.getCardOwners()
+     */
+    public DriverResolver(List<Employee> employees, Map<String, Integer> cardOwners) {
+        for (Employee e : employees) {
+            byNameAndUnit.computeIfAbsent(key(e.getName(), e.getTruckId()), k -> new ArrayList<>(1)).add(e);
+        }
+        byCard = new HashMap<>(cardOwners.size() * 2);
+        for (Map.Entry<String, Integer> entry : cardOwners.entrySet()) {
+            String card = normalize(entry.getKey());
+            if (!card.isEmpty()) byCard.put(card, entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the employee id for the transaction's driver, or 0 if there is no unique match.
+     */
+    public int resolve(String driverName, String unit, String cardNumber) {
+        String key = key(driverName, unit);
+        List<Employee> candidates = byNameAndUnit.get(key);
+        if (candidates != null && candidates.size() == 1) {
+            matchedRows++;
+            return candidates.get(0).getId();
+        }
+        Integer byCardId = cardNumber != null ? byCard.get(normalize(cardNumber)) : null;
+        if (byCardId != null) {
+            matchedRows++;
+            return byCardId;
+        }
+        String label = display(driverName) + " / " + display(unit);
+        if (candidates != null) {
+            ambiguous.merge(label, 1, Integer::sum);
+        } else {
+            unmatched.merge(label, 1, Integer::sum);
+        }
+        return 0;
+    }
+
+    public int getMatchedRows() {
+        return matchedRows;
+    }
+
+    /**
+     * Driver name / unit combinations that matched no employee, with their row counts.
+     */
+    public Map<String, Integer> getUnmatched() {
+        return Collections.unmodifiableMap(unmatched);
+    }
+
+    /**
+     * Driver name / unit combinations that matched several employees, with their row counts.
+     */
+    public Map<String, Integer> getAmbiguous() {
+        return Collections.unmodifiableMap(ambiguous);
+    }
+
+    /**
+     * Multi-line summary of unmatched and ambiguous rows, listing at most maxEntries of each.
+     * Empty if every row was matched.
+     */
+    public String summary(int maxEntries) {
+        StringBuilder sb = new StringBuilder();
+        appendSection(sb, "Unmatched drivers", unmatched, maxEntries);
+        appendSection(sb, "Ambiguous drivers", ambiguous, maxEntries);
+        return sb.toString();
+    }
+
+    private static void appendSection(StringBuilder sb, String title, Map<String, Integer> counts, int maxEntries) {
+        if (counts.isEmpty()) return;
+        int rows = counts.values().stream().mapToInt(Integer::intValue).sum();
+        sb.append(title).append(": ").append(rows).append(" rows\n");
+        int shown = 0;
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            if (shown++ == maxEntries) {
+                sb.append("  ... and ").append(counts.size() - maxEntries).append(" more\n");
+                break;
+            }
+            sb.append("  ").append(e.getKey()).append(" (").append(e.getValue()).append(")\n");
+        }
+    }
+
+    private static String key(String name, String unit) {
+        return normalize(name) + '\u0000' + normalize(unit);
+    }
+
+    // Case-insensitive, ignores surrounding and repeated whitespace
+    static String normalize(String s) {
+        if (s == null) return "";
+        String t = s.strip();
+        if (t.indexOf("  ") >= 0) t = t.replaceAll("\\s+", " ");
+        return t.toLowerCase(Locale.ROOT);
+    }
+
+    private static String display(String s) {
+        return s == null || s.isBlank() ? "(blank)" : s.strip();
+    }
+}
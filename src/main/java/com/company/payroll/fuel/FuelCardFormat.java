@@ -0,0 +1,258 @@
+package com.company.payroll.fuel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column layout of one fuel card provider's statement export.
+ *
+ * A format lists the header names it uses for each transaction field. On import the header row
+ * is matched against every known format, the best match is compiled once into a Plan (an int[]
+ * of column indexes by field), and each row is then mapped by direct array access. Headers are
+ * compared ignoring case and whitespace, so "State/ Prov" and "state/prov" are the same column.
+ *
+ * New providers are supported by adding a format to FORMATS.
+ */
+public class FuelCardFormat {
+
+    public enum Field {
+        CARD_NUMBER, TRAN_DATE, TRAN_TIME, INVOICE, UNIT, DRIVER_NAME, ODOMETER, LOCATION_NAME, CITY,
+        STATE_PROV, FEES, ITEM, UNIT_PRICE, DISC_PPU, DISC_COST, QTY, DISC_AMT, DISC_TYPE, AMT, DB, CURRENCY
+    }
+
+    /** The layout this importer was first written for. */
+    public static final FuelCardFormat STANDARD = new FuelCardFormat("Standard")
+            .column(Field.CARD_NUMBER, "Card #")
+            .column(Field.TRAN_DATE, "Tran Date")
+            .column(Field.TRAN_TIME, "Tran Time")
+            .column(Field.INVOICE, "Invoice")
+            .column(Field.UNIT, "Unit")
+            .column(Field.DRIVER_NAME, "Driver Name")
+            .column(Field.ODOMETER, "Odometer")
+            .column(Field.LOCATION_NAME, "Location Name")
+            .column(Field.CITY, "City")
+            .column(Field.STATE_PROV, "State/ Prov")
+            .column(Field.FEES, "Fees")
+            .column(Field.ITEM, "Item")
+            .column(Field.UNIT_PRICE, "Unit Price")
+            .column(Field.DISC_PPU, "Disc PPU")
+            .column(Field.DISC_COST, "Disc Cost")
+            .column(Field.QTY, "Qty")
+            .column(Field.DISC_AMT, "Disc Amt")
+            .column(Field.DISC_TYPE, "Disc Type")
+            .column(Field.AMT, "Amt")
+            .column(Field.DB, "DB")
+            .column(Field.CURRENCY, "Currency");
+
+    /** Common spellings used by other providers' transaction reports. */
+    public static final FuelCardFormat GENERIC = new FuelCardFormat("Generic")
+            .column(Field.CARD_NUMBER, "Card Number", "Card No", "Card")
+            .column(Field.TRAN_DATE, "Transaction Date", "Trans Date", "Date")
+            .column(Field.TRAN_TIME, "Transaction Time", "Trans Time", "Time")
+            .column(Field.INVOICE, "Invoice Number", "Invoice No", "Invoice", "Receipt Number", "Receipt", "Transaction ID")
+            .column(Field.UNIT, "Truck Number", "Truck", "Unit Number", "Vehicle")
+            .column(Field.DRIVER_NAME, "Driver", "Driver Name", "Employee")
+            .column(Field.ODOMETER, "Odometer", "Odometer Reading", "Mileage")
+            .column(Field.LOCATION_NAME, "Merchant Name", "Merchant", "Location", "Site", "Truck Stop")
+            .column(Field.CITY, "Merchant City", "City")
+            .column(Field.STATE_PROV, "Merchant State", "State", "Province")
+            .column(Field.FEES, "Transaction Fee", "Fees", "Fee")
+            .column(Field.ITEM, "Product Description", "Product", "Item")
+            .column(Field.UNIT_PRICE, "Price Per Gallon", "PPG", "Unit Price", "Price")
+            .column(Field.DISC_PPU, "Discount Per Gallon", "Discount PPG")
+            .column(Field.DISC_COST, "Discounted Cost", "Discount Cost")
+            .column(Field.QTY, "Gallons", "Quantity", "Qty", "Units")
+            .column(Field.DISC_AMT, "Discount Amount", "Discount", "Savings")
+            .column(Field.DISC_TYPE, "Discount Type")
+            .column(Field.AMT, "Total Amount", "Net Amount", "Amount", "Total")
+            .column(Field.CURRENCY, "Currency Code", "Currency");
+
+    /** Known formats, in order of preference when two match equally well. */
+    public static final List<FuelCardFormat> FORMATS = List.of(STANDARD, GENERIC);
+
+    private final String name;
+    private final Map<Field, List<String>> aliases = new EnumMap<>(Field.class);
+
+    /**
+     * Transaction dates are stored as written; FuelDates reads the usual US and ISO forms.
+     */
+    public FuelCardFormat(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Adds the header names used for a field, most specific first. Used while defining a format.
+     */
+    public FuelCardFormat column(Field field, String... headers) {
+        List<String> list = aliases.computeIfAbsent(field, f -> new ArrayList<>());
+        for (String h : headers) list.add(normalize(h));
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Picks the known format that recognises the most columns of this header row and compiles it.
+     */
+    public static Plan detect(String[] headers) throws IOException {
+        Map<String, Integer> index = indexHeaders(headers);
+        Plan best = null;
+        for (FuelCardFormat format : FORMATS) {
+            Plan plan = format.compile(index);
+            if (plan.columns[Field.INVOICE.ordinal()] < 0) continue; // rows are keyed by invoice
+            if (best == null || plan.matched > best.matched) best = plan;
+        }
+        if (best == null) {
+            throw new IOException("Unrecognized fuel statement: no invoice column in header " + Arrays.toString(headers));
+        }
+        return best;
+    }
+
+    /**
+     * Compiles this format against a header row. Fields it cannot find map to column -1 (empty).
+     */
+    public Plan compile(String[] headers) {
+        return compile(indexHeaders(headers));
+    }
+
+    private Plan compile(Map<String, Integer> index) {
+        int[] columns = new int[Field.values().length];
+        Arrays.fill(columns, -1);
+        int matched = 0;
+        for (Map.Entry<Field, List<String>> e : aliases.entrySet()) {
+            for (String alias : e.getValue()) {
+                Integer col = index.get(alias);
+                if (col != null) {
+                    columns[e.getKey().ordinal()] = col;
+                    matched++;
+                    break;
+                }
+            }
+        }
+        return new Plan(this, columns, matched);
+    }
+
+    // Normalized header -> first column with that header
+    private static Map<String, Integer> indexHeaders(String[] headers) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < headers.length; i++) {
+            index.putIfAbsent(normalize(headers[i]), i);
+        }
+        return index;
+    }
+
+    private static String normalize(String header) {
+        StringBuilder sb = new StringBuilder(header.length());
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (!Character.isWhitespace(c) && c != '\uFEFF') sb.append(c);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A format compiled against one file's header row. Immutable, so chunks of a file can be
+     * mapped on several threads with the same plan.
+     */
+    public static final class Plan {
+        private final FuelCardFormat format;
+        private final int[] columns; // by Field.ordinal(), -1 = not in this file
+        private final int matched;
+
+        private Plan(FuelCardFormat format, int[] columns, int matched) {
+            this.format = format;
+            this.columns = columns;
+            this.matched = matched;
+        }
+
+        public FuelCardFormat getFormat() {
+            return format;
+        }
+
+        /**
+         * Fields found in the file, for reporting.
+         */
+        public List<Field> getMappedFields() {
+            List<Field> fields = new ArrayList<>();
+            for (Field f : Field.values()) {
+                if (columns[f.ordinal()] >= 0) fields.add(f);
+            }
+            return Collections.unmodifiableList(fields);
+        }
+
+        /**
+         * Maps one data row; returns null for rows without an invoice. The employee is left at 0.
+         */
+        public FuelTransaction toTransaction(String[] row) {
+            String invoice = text(row, Field.INVOICE);
+            if (invoice.isEmpty()) return null; // must have invoice
+
+            return new FuelTransaction(
+                0,
+                text(row, Field.CARD_NUMBER),
+                text(row, Field.TRAN_DATE),
+                text(row, Field.TRAN_TIME),
+                invoice,
+                text(row, Field.UNIT),
+                text(row, Field.DRIVER_NAME),
+                text(row, Field.ODOMETER),
+                text(row, Field.LOCATION_NAME),
+                text(row, Field.CITY),
+                text(row, Field.STATE_PROV),
+                number(row, Field.FEES),
+                text(row, Field.ITEM),
+                number(row, Field.UNIT_PRICE),
+                number(row, Field.DISC_PPU),
+                number(row, Field.DISC_COST),
+                number(row, Field.QTY),
+                number(row, Field.DISC_AMT),
+                text(row, Field.DISC_TYPE),
+                number(row, Field.AMT),
+                text(row, Field.DB),
+                text(row, Field.CURRENCY),
+                0
+            );
+        }
+
+        private String text(String[] row, Field field) {
+            int col = columns[field.ordinal()];
+            return col >= 0 && col < row.length ? row[col].trim() : "";
+        }
+
+        private double number(String[] row, Field field) {
+            return parseAmount(text(row, field));
+        }
+    }
+
+    /**
+     * Parses "12.5", "$1,234.50" or "(3.00)" (negative); anything else is 0. Empty cells are
+     * common, so they are handled without an exception.
+     */
+    static double parseAmount(String s) {
+        if (s.isEmpty()) return 0;
+        boolean negative = s.charAt(0) == '(' && s.charAt(s.length() - 1) == ')';
+        if (negative || s.indexOf('$') >= 0 || s.indexOf(',') >= 0) {
+            StringBuilder sb = new StringBuilder(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c != '$' && c != ',' && c != '(' && c != ')' && c != ' ') sb.append(c);
+            }
+            s = sb.toString();
+        }
+        try {
+            double v = Double.parseDouble(s);
+            return negative ? -v : v;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.company.payroll.fuel;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Parses the free-form tran_date values found in fuel card exports into epoch days.
+ *
+ * Accepts ISO dates (yyyy-MM-dd, yyyy/MM/dd) and US dates (M/d/yyyy, M-d-yyyy, M/d/yy), with or
+ * without a trailing time part ("2024-03-05 14:20", "03/05/2024T14:20:00"). Two-digit years are
+ * taken as 20yy.
+ */
+public final class FuelDates {
+
+    private FuelDates() {}
+
+    /**
+     * Returns the epoch day of the given tran_date, or null if it is blank or not a recognised date.
+     */
+    public static Long toEpochDay(String tranDate) {
+        LocalDate date = parse(tranDate);
+        return date != null ? date.toEpochDay() : null;
+    }
+
+    /**
+     * Returns the date of the given tran_date, or null if it is blank or not a recognised date.
+     */
+    public static LocalDate parse(String tranDate) {
+        if (tranDate == null) return null;
+        String s = tranDate.trim();
+        int end = s.length();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == ' ' || c == 'T') {
+                end = i;
+                break;
+            }
+        }
+        int[] parts = new int[3];
+        int[] digits = new int[3];
+        int part = 0;
+        for (int i = 0; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits[part] == 4) return null;
+                parts[part] = parts[part] * 10 + (c - '0');
+                digits[part]++;
+            } else if ((c == '/' || c == '-' || c == '.') && part < 2 && digits[part] > 0) {
+                part++;
+            } else {
+                return null;
+            }
+        }
+        if (part != 2 || digits[2] == 0) return null;
+
+        int year, month, day;
+        if (digits[0] == 4) {
+            year = parts[0];
+            month = parts[1];
+            day = parts[2];
+        } else if (digits[2] == 4 || digits[2] == 2) {
+            month = parts[0];
+            day = parts[1];
+            year = digits[2] == 2 ? 2000 + parts[2] : parts[2];
+        } else {
+            return null;
+        }
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+}
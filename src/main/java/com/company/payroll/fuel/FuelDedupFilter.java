@@ -0,0 +1,111 @@
+package com.company.payroll.fuel;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * In-memory duplicate check for fuel imports.
+ *
+ * A transaction is a duplicate when invoice, date, location and amount match an existing row
+ * ignoring case, surrounding whitespace and the date's text format (the dedup_key column). Keys
+ * are kept as 64-bit hashes in an open-addressing table, about 10 bytes per key. Existing keys
+ * are loaded from the database one day at a time, only for the days that occur in the file, so
+ * re-importing an overlapping statement costs one indexed query per day instead of one per row.
+ *
+ * Not thread-safe; use one instance per import.
+ */
+public class FuelDedupFilter {
+    private static final char SEPARATOR = '\u001f';
+
+    private final FuelTransactionDAO dao;
+    private final Set<Long> loadedDays = new HashSet<>(); // null = rows without a parseable date
+    private long[] table = new long[1 << 14];
+    private int size = 0;
+    private int duplicates = 0;
+
+    public FuelDedupFilter(FuelTransactionDAO dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Normalized duplicate key stored in fuel_transactions.dedup_key.
+     */
+    public static String key(String invoice, String tranDate, String locationName, double amt) {
+        Long day = FuelDates.toEpochDay(tranDate);
+        String date = day != null ? day.toString() : normalize(tranDate);
+        return normalize(invoice) + SEPARATOR + date + SEPARATOR + normalize(locationName) + SEPARATOR + Math.round(amt * 100);
+    }
+
+    public static String key(FuelTransaction t) {
+        return key(t.getInvoice(), t.getTranDate(), t.getLocationName(), t.getAmt());
+    }
+
+    /**
+     * Returns true if the transaction is not yet in the database or earlier in this import, and
+     * remembers it. Returns false (and counts a duplicate) otherwise.
+     */
+    public boolean addIfNew(FuelTransaction t) {
+        Long day = FuelDates.toEpochDay(t.getTranDate());
+        if (loadedDays.add(day)) {
+            for (String existing : dao.getDedupKeysForDay(day)) {
+                insert(hash(existing));
+            }
+        }
+        if (insert(hash(key(t)))) return true;
+        duplicates++;
+        return false;
+    }
+
+    /**
+     * Rows rejected by addIfNew so far.
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    private static String normalize(String s) {
+        return s == null ? "" : s.strip().toLowerCase(Locale.ROOT);
+    }
+
+    // FNV-1a over the UTF-16 chars, then a 64-bit finalizer to spread the bits
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h; // 0 marks an empty slot
+    }
+
+    // Returns false if already present
+    private boolean insert(long h) {
+        if (size * 4 >= table.length * 3) grow();
+        int mask = table.length - 1;
+        int i = (int) h & mask;
+        while (table[i] != 0) {
+            if (table[i] == h) return false;
+            i = (i + 1) & mask;
+        }
+        table[i] = h;
+        size++;
+        return true;
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        int mask = table.length - 1;
+        for (long h : old) {
+            if (h == 0) continue;
+            int i = (int) h & mask;
+            while (table[i] != 0) i = (i + 1) & mask;
+            table[i] = h;
+        }
+    }
+}
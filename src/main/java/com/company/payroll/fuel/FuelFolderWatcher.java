@@ -0,0 +1,183 @@
+package com.company.payroll.fuel;
+
+import com.company.payroll.io.FileHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports fuel statements dropped into a folder.
+ *
+ * A single low-priority background thread watches the folder with a WatchService. Events are
+ * collected until the folder has been quiet for a couple of seconds, so a burst of copies is
+ * handled as one batch and half-written files are not picked up. Files are then imported one at
+ * a time, with a short pause between them, through the same FuelImporter as manual imports.
+ * Files whose content hash is already in import_log (imported here or by hand) are skipped, so
+ * restarting, renaming or re-copying a statement never imports it twice. Rolling back a file's
+ * import batch removes it from the log, so dropping it in again re-imports it.
+ */
+public class FuelFolderWatcher {
+    private static final Logger log = LoggerFactory.getLogger(FuelFolderWatcher.class);
+
+    private static final long QUIET_PERIOD_MS = 2_000;
+    private static final long PAUSE_BETWEEN_FILES_MS = 500;
+
+    /**
+     * Receives the outcome of each file, on the watcher thread.
+     */
+    public interface Listener {
+        /** A file is about to be imported; followed by imported or failed unless the watcher is stopped. */
+        void started(File file);
+
+        void imported(File file, FuelImporter.Result result);
+
+        void failed(File file, Exception error);
+    }
+
+    private final Path directory;
+    private final FuelImporter importer;
+    private final FuelImportLogDAO importLog;
+    private final Listener listener;
+    private final Set<Path> pending = new LinkedHashSet<>();
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean running = false;
+
+    public FuelFolderWatcher(Path directory, FuelImporter importer, FuelImportLogDAO importLog, Listener listener) {
+        this.directory = directory;
+        this.importer = importer;
+        this.importLog = importLog;
+        this.listener = listener;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Starts watching. Files already in the folder are picked up as well.
+     */
+    public synchronized void start() throws IOException {
+        if (running) return;
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        running = true;
+        thread = new Thread(this::run, "fuel-folder-watcher");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        log.info("Watching {} for fuel statements", directory);
+    }
+
+    /**
+     * Stops watching. An import in progress stops at the next row, keeping its last checkpoint so
+     * that it resumes the next time the file is imported; waits briefly for it.
+     */
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.warn("Closing watch service failed", e);
+        }
+        thread.interrupt();
+        try {
+            thread.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Stopped watching {}", directory);
+    }
+
+    private void run() {
+        scanExisting();
+        try {
+            while (running) {
+                // Block until something happens; once files are pending, wait only for the quiet period
+                WatchKey key = pending.isEmpty() ? watchService.take() : watchService.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    collect(key);
+                } else {
+                    importPending();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    private void collect(WatchKey key) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                scanExisting();
+            } else {
+                Path file = directory.resolve((Path) event.context());
+                if (FuelImporter.isSupported(file.toFile())) pending.add(file);
+            }
+        }
+        key.reset();
+    }
+
+    private void scanExisting() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (FuelImporter.isSupported(file.toFile())) pending.add(file);
+            }
+        } catch (IOException e) {
+            log.warn("Could not list {}", directory, e);
+        }
+    }
+
+    private void importPending() throws InterruptedException {
+        Iterator<Path> it = pending.iterator();
+        while (it.hasNext() && running) {
+            Path file = it.next();
+            it.remove();
+            if (Files.isRegularFile(file)) {
+                importFile(file);
+                Thread.sleep(PAUSE_BETWEEN_FILES_MS);
+            }
+        }
+    }
+
+    private void importFile(Path file) {
+        try {
+            if (Files.size(file) == 0) return; // just created; its content arrives with a later event
+            String hash = FileHash.sha256(file);
+            if (importLog.isImported(hash)) {
+                log.debug("Skipping {}: already imported", file);
+                return;
+            }
+            long start = System.nanoTime();
+            listener.started(file.toFile());
+            // The importer records the file in import_log once it completes
+            FuelImporter.Result result = importer.importFile(file.toFile(), hash, null, null, () -> !running);
+            log.info("Imported {}: {} new, {} skipped in {} ms", file.getFileName(), result.getInserted(),
+                    result.getSkipped(), (System.nanoTime() - start) / 1_000_000);
+            listener.imported(file.toFile(), result);
+        } catch (CancellationException e) {
+            log.info("Import of {} stopped; it resumes from its last checkpoint", file.getFileName());
+        } catch (IOException | RuntimeException e) {
+            // Not logged as imported: the file is retried the next time it changes
+            log.warn("Import of {} failed", file, e);
+            listener.failed(file.toFile(), e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.company.payroll.fuel;
+
+import com.company.payroll.db.DatabaseManager;
+import com.company.payroll.db.SchemaMigrator;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Import batches: every fuel import tags its rows with a batch id (fuel_transactions.import_batch_id,
+ * indexed), so a whole import can be listed and removed at once.
+ */
+public class FuelImportBatchDAO {
+
+    public FuelImportBatchDAO() {
+        // Tables and indexes are created by SchemaMigrator; only the first call touches the database
+        SchemaMigrator.migrate();
+    }
+
+    /**
+     * Starts a new batch and returns its id.
+     */
+    public int create(String fileName, String fileHash) {
+        String sql = "INSERT INTO import_batches (file_name, file_hash) VALUES (?, ?)";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, fileName);
+            ps.setString(2, fileHash);
+            ps.executeUpdate();
+            ResultSet keys = ps.getGeneratedKeys();
+            if (keys.next()) return keys.getInt(1);
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not start import batch: " + e.getMessage(), e);
+        }
+        throw new RuntimeException("Could not start import batch: no id returned");
+    }
+
+    /**
+     * All batches, newest first, with the number of transactions each still has.
+     */
+    public List<ImportBatch> getAll() {
+        List<ImportBatch> list = new ArrayList<>();
+        String sql = """
+            SELECT b.id, b.file_name, b.started_at, b.rolled_back_at,
+                   (SELECT COUNT(*) FROM fuel_transactions t WHERE t.import_batch_id = b.id) AS row_count
+            FROM import_batches b
+            ORDER BY b.id DESC
+        """;
+        try (Connection conn = DatabaseManager.getConnection()) {
+            ResultSet rs = conn.createStatement().executeQuery(sql);
+            while (rs.next()) {
+                list.add(new ImportBatch(
+                    rs.getInt("id"),
+                    rs.getString("file_name"),
+                    rs.getString("started_at"),
+                    rs.getInt("row_count"),
+                    rs.getString("rolled_back_at")
+                ));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    /**
+     * Deletes every transaction of the batch in one transaction and marks the batch rolled back.
+     * Its checkpoints and import_log entry are dropped too, so importing the file again (by hand
+     * or through the watch folder) starts from the beginning.
+     * Returns the number of transactions deleted.
+     */
+    public int rollback(int batchId) {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int deleted;
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM fuel_transactions WHERE import_batch_id = ?")) {
+                    ps.setInt(1, batchId);
+                    deleted = ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM import_jobs WHERE batch_id = ?")) {
+                    ps.setInt(1, batchId);
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "DELETE FROM import_log WHERE file_hash = (SELECT file_hash FROM import_batches WHERE id = ?)")) {
+                    ps.setInt(1, batchId);
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement("UPDATE import_batches SET rolled_back_at = datetime('now') WHERE id = ?")) {
+                    ps.setInt(1, batchId);
+                    ps.executeUpdate();
+                }
+                conn.commit();
+                return deleted;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Rolling back import batch " + batchId + " failed: " + e.getMessage(), e);
+        }
+    }
+}
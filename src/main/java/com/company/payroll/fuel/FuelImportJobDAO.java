@@ -0,0 +1,155 @@
+package com.company.payroll.fuel;
+
+import com.company.payroll.db.DatabaseManager;
+import com.company.payroll.db.SchemaMigrator;
+
+import java.sql.*;
+
+/**
+ * Checkpoints of fuel imports (import_jobs), keyed by the file's content hash (for an entry of a
+ * .zip archive, the archive's hash and the entry name).
+ *
+ * A checkpoint is written on the import's own connection, inside the transaction that commits
+ * the rows it covers, so after a crash the checkpoint and the data always agree.
+ */
+public class FuelImportJobDAO {
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETE = "COMPLETE";
+
+    public FuelImportJobDAO() {
+        // Tables and indexes are created by SchemaMigrator; only the first call touches the database
+        SchemaMigrator.migrate();
+    }
+
+    /**
+     * The interrupted import of this file, or null if there is none to resume.
+     */
+    public Job findUnfinished(String fileHash) {
+        String sql = "SELECT * FROM import_jobs WHERE file_hash = ? AND status = ?";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            ps.setString(1, fileHash);
+            ps.setString(2, RUNNING);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                return new Job(
+                    rs.getString("file_hash"),
+                    rs.getString("file_name"),
+                    rs.getLong("byte_offset"),
+                    rs.getLong("rows_done"),
+                    rs.getInt("rows_inserted"),
+                    rs.getInt("rows_skipped"),
+                    rs.getInt("batch_id")
+                );
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Batch of an interrupted import whose key starts with keyPrefix, or 0 if there is none.
+     * Entries of a .zip archive are keyed "archive hash!entry name".
+     */
+    public int findUnfinishedBatch(String keyPrefix) {
+        String sql = "SELECT batch_id FROM import_jobs WHERE status = ? AND substr(file_hash, 1, ?) = ? LIMIT 1";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            ps.setString(1, RUNNING);
+            ps.setInt(2, keyPrefix.length());
+            ps.setString(3, keyPrefix);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) return rs.getInt(1);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * Whether the file was imported to the end as part of the given batch.
+     */
+    public boolean isComplete(String fileHash, int batchId) {
+        String sql = "SELECT 1 FROM import_jobs WHERE file_hash = ? AND status = ? AND batch_id = ?";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            ps.setString(1, fileHash);
+            ps.setString(2, COMPLETE);
+            ps.setInt(3, batchId);
+            return ps.executeQuery().next();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Registers a new import of the file from the beginning, replacing any earlier job.
+     */
+    public void start(String fileHash, String fileName, int batchId) {
+        String sql = "INSERT OR REPLACE INTO import_jobs (file_hash, file_name, status, batch_id) VALUES (?, ?, ?, ?)";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            ps.setString(1, fileHash);
+            ps.setString(2, fileName);
+            ps.setString(3, RUNNING);
+            ps.setInt(4, batchId);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Records progress on the caller's connection, as part of its open transaction.
+     */
+    public void checkpoint(Connection conn, String fileHash, long byteOffset, long rowsDone,
+                           int inserted, int skipped, boolean complete) throws SQLException {
+        String sql = """
+            UPDATE import_jobs SET byte_offset=?, rows_done=?, rows_inserted=?, rows_skipped=?, status=?,
+                updated_at=datetime('now')
+            WHERE file_hash=?
+        """;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, byteOffset);
+            ps.setLong(2, rowsDone);
+            ps.setInt(3, inserted);
+            ps.setInt(4, skipped);
+            ps.setString(5, complete ? COMPLETE : RUNNING);
+            ps.setString(6, fileHash);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Position and totals of an import as of its last checkpoint.
+     */
+    public static class Job {
+        private final String fileHash;
+        private final String fileName;
+        private final long byteOffset;
+        private final long rowsDone;
+        private final int inserted;
+        private final int skipped;
+        private final int batchId;
+
+        public Job(String fileHash, String fileName, long byteOffset, long rowsDone, int inserted, int skipped, int batchId) {
+            this.fileHash = fileHash;
+            this.fileName = fileName;
+            this.byteOffset = byteOffset;
+            this.rowsDone = rowsDone;
+            this.inserted = inserted;
+            this.skipped = skipped;
+            this.batchId = batchId;
+        }
+
+        public String getFileHash() { return fileHash; }
+        public String getFileName() { return fileName; }
+        public long getByteOffset() { return byteOffset; }
+        public long getRowsDone() { return rowsDone; }
+        public int getInserted() { return inserted; }
+        public int getSkipped() { return skipped; }
+        public int getBatchId() { return batchId; }
+    }
+}
@@ -0,0 +1,46 @@
+package com.company.payroll.fuel;
+
+import com.company.payroll.db.DatabaseManager;
+import com.company.payroll.db.SchemaMigrator;
+
+import java.sql.*;
+
+/**
+ * Files ingested so far (manually or through the watch folder), keyed by a SHA-256 hash of their
+ * content, so a statement is never imported twice even if it is renamed or copied into the watch
+ * folder again. FuelImportBatchDAO.rollback removes a file's entry.
+ */
+public class FuelImportLogDAO {
+
+    public FuelImportLogDAO() {
+        // Tables and indexes are created by SchemaMigrator; only the first call touches the database
+        SchemaMigrator.migrate();
+    }
+
+    public boolean isImported(String fileHash) {
+        String sql = "SELECT 1 FROM import_log WHERE file_hash = ?";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            ps.setString(1, fileHash);
+            ResultSet rs = ps.executeQuery();
+            return rs.next();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public void record(String fileHash, String fileName, int inserted, int skipped) {
+        String sql = "INSERT OR IGNORE INTO import_log (file_hash, file_name, rows_inserted, rows_skipped) VALUES (?, ?, ?, ?)";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            ps.setString(1, fileHash);
+            ps.setString(2, fileName);
+            ps.setInt(3, inserted);
+            ps.setInt(4, skipped);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,28 +1,58 @@
 package com.company.payroll.fuel;
 
 import javafx.scene.Node;
-import com.company.payroll.employees.Employee;
+import com.company.payroll.db.AsyncDataAccess;
 import com.company.payroll.employees.EmployeeDAO;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.*;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.prefs.Preferences;
 
 public class FuelImportTab extends BorderPane {
+    private static final String WATCH_FOLDER_PREF = "fuelWatchFolder";
 
-    private final FuelTransactionDAO dao = new FuelTransactionDAO();
-    private final EmployeeDAO employeeDAO = new EmployeeDAO();
+    private final FuelTransactionDAO dao;
+    private final EmployeeDAO employeeDAO;
+    private final FuelImportLogDAO importLogDAO;
+    private final FuelImportBatchDAO batchDAO;
     private final ObservableList<FuelTransaction> data = FXCollections.observableArrayList();
 
-    public FuelImportTab() {
+    // Reloads and imports run in the background so large files don't freeze the UI
+    private final AsyncDataAccess.Request<List<FuelTransaction>> reloadRequest = new AsyncDataAccess.Request<>();
+    private final FuelImporter importer;
+    private final SimpleBooleanProperty importing = new SimpleBooleanProperty(false);
+    private final SimpleBooleanProperty autoImporting = new SimpleBooleanProperty(false); // by the watch folder
+    private final ProgressBar importProgress = new ProgressBar();
+    private final Label importStatus = new Label();
+    private final Button cancelImportBtn = new Button("Cancel");
+    private FuelImportTask importTask;
+
+    // Optional unattended import of files dropped into a folder (remembered between runs)
+    private final Preferences prefs = Preferences.userNodeForPackage(FuelImportTab.class);
+    private final Button watchBtn = new Button("Watch Folder...");
+    private final Label watchStatus = new Label();
+    private FuelFolderWatcher watcher;
+
+    public FuelImportTab(FuelTransactionDAO dao, EmployeeDAO employeeDAO, FuelImportLogDAO importLogDAO,
+                         FuelImportJobDAO jobDAO, FuelImportBatchDAO batchDAO) {
+        this.dao = dao;
+        this.employeeDAO = employeeDAO;
+        this.importLogDAO = importLogDAO;
+        this.batchDAO = batchDAO;
+        this.importer = new FuelImporter(dao, employeeDAO, jobDAO, batchDAO, importLogDAO);
         setPadding(new Insets(10));
 
         TableView<FuelTransaction> table = makeTable();
@@ -31,9 +61,12 @@ public class FuelImportTab extends BorderPane {
         Button editBtn = new Button("Edit");
         Button deleteBtn = new Button("Delete");
         Button importBtn = new Button("Import CSV/XLSX");
+        Button historyBtn = new Button("Import History...");
         Button refreshBtn = new Button("Refresh");
 
-        HBox actions = new HBox(12, addBtn, editBtn, deleteBtn, importBtn, refreshBtn);
+        HBox actions = new HBox(12, addBtn, editBtn, deleteBtn, importBtn, historyBtn, refreshBtn, watchBtn,
+                reloadRequest.newIndicator(), watchStatus);
+        importBtn.disableProperty().bind(importing);
         actions.setAlignment(Pos.CENTER_LEFT);
         actions.setPadding(new Insets(8,0,10,0));
 
@@ -57,55 +90,208 @@ public class FuelImportTab extends BorderPane {
             }
         });
         refreshBtn.setOnAction(e -> reload());
+        historyBtn.setOnAction(e -> showImportHistory());
 
         importBtn.setOnAction(e -> {
             FileChooser fc = new FileChooser();
             fc.setTitle("Import Fuel Transactions");
             fc.getExtensionFilters().addAll(
-                new FileChooser.ExtensionFilter("CSV Files", "*.csv"),
-                new FileChooser.ExtensionFilter("Excel Files", "*.xlsx")
+                new FileChooser.ExtensionFilter("Fuel Statements", "*.csv", "*.xlsx", "*.csv.gz", "*.zip"),
+                new FileChooser.ExtensionFilter("CSV Files", "*.csv", "*.csv.gz"),
+                new FileChooser.ExtensionFilter("Excel Files", "*.xlsx"),
+                new FileChooser.ExtensionFilter("Zip Archives", "*.zip")
             );
             File file = fc.showOpenDialog(getScene().getWindow());
-            if (file != null) {
-                int imported = 0, skipped = 0;
-                String lower = file.getName().toLowerCase();
-                try {
-                    List<FuelTransaction> importedList = null;
-                    if (lower.endsWith(".csv")) {
-                        importedList = parseCSV(file);
-                    } else if (lower.endsWith(".xlsx")) {
-                        importedList = parseXLSX(file); // Need Apache POI
-                    }
-                    if (importedList != null && !importedList.isEmpty()) {
-                        for (FuelTransaction tx : importedList) {
-                            if (dao.exists(
-                                    tx.getInvoice(),
-                                    tx.getTranDate(),
-                                    tx.getLocationName(),
-                                    tx.getAmt())) {
-                                skipped++;
-                                continue;
-                            }
-                            dao.add(tx);
-                            imported++;
-                        }
-                        reload();
-                        new Alert(Alert.AlertType.INFORMATION,
-                                "Import complete!\nImported: " + imported + "\nSkipped (duplicates): " + skipped).showAndWait();
-                    }
-                } catch (Exception ex) {
-                    new Alert(Alert.AlertType.ERROR, "Import failed: " + ex.getMessage()).showAndWait();
-                }
+            if (file != null && FuelImporter.isSupported(file)) startImport(file);
+        });
+        watchBtn.setOnAction(e -> {
+            if (watcher != null) {
+                stopWatching();
+                prefs.remove(WATCH_FOLDER_PREF);
+                return;
+            }
+            DirectoryChooser dc = new DirectoryChooser();
+            dc.setTitle("Folder to Import Fuel Statements From");
+            File dir = dc.showDialog(getScene().getWindow());
+            if (dir != null && startWatching(dir.toPath())) {
+                prefs.put(WATCH_FOLDER_PREF, dir.getAbsolutePath());
             }
         });
+        cancelImportBtn.setOnAction(e -> {
+            if (importTask != null) importTask.requestCancel();
+        });
+
+        importProgress.setPrefWidth(220);
+        HBox importBar = new HBox(10, importProgress, importStatus, cancelImportBtn);
+        importBar.setAlignment(Pos.CENTER_LEFT);
+        importBar.setPadding(new Insets(8, 0, 0, 0));
+        importBar.visibleProperty().bind(importing);
+        importBar.managedProperty().bind(importing);
 
         setTop(actions);
         setCenter(table);
+        setBottom(importBar);
         reload();
+
+        String folder = prefs.get(WATCH_FOLDER_PREF, null);
+        if (folder != null && Files.isDirectory(Path.of(folder))) startWatching(Path.of(folder));
+    }
+
+    /**
+     * Stops the watch folder, if any. Called when the application exits.
+     */
+    public void shutdown() {
+        stopWatching();
+    }
+
+    private boolean startWatching(Path dir) {
+        FuelFolderWatcher w = new FuelFolderWatcher(dir, importer, importLogDAO, new FuelFolderWatcher.Listener() {
+            @Override
+            public void started(File file) {
+                Platform.runLater(() -> {
+                    autoImporting.set(true);
+                    watchStatus.setText("Auto-importing " + file.getName() + "...");
+                });
+            }
+
+            @Override
+            public void imported(File file, FuelImporter.Result result) {
+                Platform.runLater(() -> {
+                    autoImporting.set(false);
+                    watchStatus.setText("Auto-imported " + file.getName() + ": " + result.getInserted()
+                            + " new, " + result.getSkipped() + " skipped");
+                    reload();
+                });
+            }
+
+            @Override
+            public void failed(File file, Exception error) {
+                Platform.runLater(() -> {
+                    autoImporting.set(false);
+                    watchStatus.setText("Auto-import of " + file.getName() + " failed: " + error.getMessage());
+                });
+            }
+        });
+        try {
+            w.start();
+        } catch (IOException ex) {
+            new Alert(Alert.AlertType.ERROR, "Cannot watch " + dir + ": " + ex.getMessage()).showAndWait();
+            return false;
+        }
+        watcher = w;
+        watchBtn.setText("Stop Watching");
+        watchStatus.setText("Watching " + dir);
+        return true;
+    }
+
+    private void stopWatching() {
+        if (watcher == null) return;
+        watcher.stop(); // an auto-import in progress is cancelled before this returns
+        watcher = null;
+        autoImporting.set(false);
+        watchBtn.setText("Watch Folder...");
+        watchStatus.setText("");
+    }
+
+    private void startImport(File file) {
+        FuelImportTask task = new FuelImportTask(importer, file);
+        importTask = task;
+        importProgress.progressProperty().bind(task.progressProperty());
+        importStatus.textProperty().bind(task.messageProperty());
+        importing.set(true);
+
+        task.setOnSucceeded(e -> {
+            finishImport();
+            reload();
+            FuelImporter.Result result = task.getValue();
+            String drivers = result.getResolver().summary(10);
+            new Alert(Alert.AlertType.INFORMATION,
+                    "Import complete!"
+                    + (result.getResumedAfterRow() > 0 ? String.format("\nResumed after row %,d of an earlier import", result.getResumedAfterRow()) : "")
+                    + "\nImported: " + result.getInserted() + "\nSkipped (duplicates): " + result.getSkipped()
+                    + String.format("\nRows read: %,d in %.1f s (%,.0f rows/s)",
+                            result.getRowsParsed(), result.getElapsedNanos() / 1e9, result.getRowsPerSecond())
+                    + (drivers.isEmpty() ? "" : "\n\n" + drivers)).showAndWait();
+        });
+        task.setOnFailed(e -> {
+            finishImport();
+            reload();
+            Throwable ex = task.getException();
+            if (ex instanceof CancellationException) {
+                new Alert(Alert.AlertType.INFORMATION, "Import cancelled. No rows from " + file.getName()
+                        + " were kept.").showAndWait();
+                return;
+            }
+            new Alert(Alert.AlertType.ERROR, "Import failed: " + ex.getMessage()
+                    + "\nImport the same file again to resume from the last checkpoint.").showAndWait();
+        });
+        AsyncDataAccess.run(task);
+    }
+
+    private void finishImport() {
+        importProgress.progressProperty().unbind();
+        importStatus.textProperty().unbind();
+        importing.set(false);
+        importTask = null;
     }
 
     private void reload() {
-        data.setAll(dao.getAll());
+        reloadRequest.submit(dao::getAll, data::setAll);
+    }
+
+    // Lists past imports; a whole import can be rolled back with one indexed DELETE
+    private void showImportHistory() {
+        Dialog<Void> dialog = new Dialog<>();
+        dialog.setTitle("Import History");
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+        ObservableList<ImportBatch> batches = FXCollections.observableArrayList();
+        TableView<ImportBatch> table = new TableView<>(batches);
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        table.setPrefSize(640, 360);
+        TableColumn<ImportBatch, Integer> colId = new TableColumn<>("Batch");
+        colId.setCellValueFactory(new PropertyValueFactory<>("id"));
+        TableColumn<ImportBatch, String> colFile = new TableColumn<>("File");
+        colFile.setCellValueFactory(new PropertyValueFactory<>("fileName"));
+        TableColumn<ImportBatch, String> colStarted = new TableColumn<>("Imported At");
+        colStarted.setCellValueFactory(new PropertyValueFactory<>("startedAt"));
+        TableColumn<ImportBatch, Integer> colRows = new TableColumn<>("Rows");
+        colRows.setCellValueFactory(new PropertyValueFactory<>("rowCount"));
+        TableColumn<ImportBatch, String> colStatus = new TableColumn<>("Status");
+        colStatus.setCellValueFactory(new PropertyValueFactory<>("status"));
+        table.getColumns().addAll(colId, colFile, colStarted, colRows, colStatus);
+
+        AsyncDataAccess.Request<List<ImportBatch>> loadRequest = new AsyncDataAccess.Request<>();
+        AsyncDataAccess.Request<Integer> rollbackRequest = new AsyncDataAccess.Request<>();
+        Runnable load = () -> loadRequest.submit(batchDAO::getAll, batches::setAll);
+
+        Button rollbackBtn = new Button("Roll Back Import");
+        rollbackBtn.disableProperty().bind(table.getSelectionModel().selectedItemProperty().isNull()
+                .or(rollbackRequest.runningProperty()).or(importing).or(autoImporting));
+        rollbackBtn.setOnAction(e -> {
+            ImportBatch b = table.getSelectionModel().getSelectedItem();
+            if (b == null || b.isRolledBack()) return;
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION,
+                    "Delete all " + b.getRowCount() + " transactions imported from " + b.getFileName() + "?",
+                    ButtonType.YES, ButtonType.NO);
+            confirm.setHeaderText("Roll Back Import");
+            confirm.showAndWait().ifPresent(btn -> {
+                if (btn != ButtonType.YES) return;
+                rollbackRequest.submit(() -> batchDAO.rollback(b.getId()), deleted -> {
+                    load.run();
+                    reload();
+                    new Alert(Alert.AlertType.INFORMATION, "Removed " + deleted + " transactions.").showAndWait();
+                });
+            });
+        });
+
+        HBox buttons = new HBox(10, rollbackBtn, loadRequest.newIndicator(), rollbackRequest.newIndicator());
+        buttons.setAlignment(Pos.CENTER_LEFT);
+        VBox content = new VBox(10, table, buttons);
+        content.setPadding(new Insets(10));
+        dialog.getDialogPane().setContent(content);
+        load.run();
+        dialog.showAndWait();
     }
 
     private TableView<FuelTransaction> makeTable() {
@@ -174,16 +360,13 @@ public class FuelImportTab extends BorderPane {
                 double fees = parseDouble(feesField.getText());
 
                 // Attempt to match employee
-                int employeeId = 0;
-                List<Employee> matches = employeeDAO.getAll().stream()
-                    .filter(e -> e.getName().equalsIgnoreCase(driver) && e.getTruckId().equalsIgnoreCase(unit))
-                    .collect(Collectors.toList());
-                if (!matches.isEmpty()) employeeId = matches.get(0).getId();
+                int employeeId = new DriverResolver(employeeDAO.getAll()).resolve(driver, unit, null);
 
                 FuelTransaction tx = new FuelTransaction(
                     t == null ? 0 : t.getId(), "", tranDate, "", invoice, unit, driver,
                     "", location, "", "", fees, "", 0, 0, 0, 0, 0, "", amt, "", "", employeeId
                 );
+                if (t != null) tx.setImportBatchId(t.getImportBatchId()); // stays part of its import
                 if (isAdd) dao.add(tx);
                 else dao.update(tx);
                 reload();
@@ -195,75 +378,7 @@ public class FuelImportTab extends BorderPane {
         dialog.showAndWait();
     }
 
-    // CSV Import
-    private List<FuelTransaction> parseCSV(File file) throws IOException {
-        List<FuelTransaction> list = new ArrayList<>();
-        List<Employee> employees = employeeDAO.getAll();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
-            String[] headers = br.readLine().split(",");
-            Map<String, Integer> map = new HashMap<>();
-            for (int i = 0; i < headers.length; i++)
-                map.put(headers[i].trim().toLowerCase(), i);
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] arr = line.split(",", -1);
-                String invoice = getVal(arr, map, "invoice");
-                if (invoice.isEmpty()) continue; // must have invoice
-
-                String driverName = getVal(arr, map, "driver name");
-                String unit = getVal(arr, map, "unit");
-
-                // Match employee by name and unit
-                int employeeId = 0;
-                for (Employee e : employees) {
-                    if (e.getName().equalsIgnoreCase(driverName) && e.getTruckId().equalsIgnoreCase(unit)) {
-                        employeeId = e.getId();
-                        break;
-                    }
-                }
-
-                FuelTransaction t = new FuelTransaction(
-                    0,
-                    getVal(arr, map, "card #"),
-                    getVal(arr, map, "tran date"),
-                    getVal(arr, map, "tran time"),
-                    invoice,
-                    unit,
-                    driverName,
-                    getVal(arr, map, "odometer"),
-                    getVal(arr, map, "location name"),
-                    getVal(arr, map, "city"),
-                    getVal(arr, map, "state/ prov"),
-                    parseDouble(getVal(arr, map, "fees")),
-                    getVal(arr, map, "item"),
-                    parseDouble(getVal(arr, map, "unit price")),
-                    parseDouble(getVal(arr, map, "disc ppu")),
-                    parseDouble(getVal(arr, map, "disc cost")),
-                    parseDouble(getVal(arr, map, "qty")),
-                    parseDouble(getVal(arr, map, "disc amt")),
-                    getVal(arr, map, "disc type"),
-                    parseDouble(getVal(arr, map, "amt")),
-                    getVal(arr, map, "db"),
-                    getVal(arr, map, "currency"),
-                    employeeId
-                );
-                list.add(t);
-            }
-        }
-        return list;
-    }
-
-    // --- XLSX parsing stub (implement using Apache POI if needed) ---
-    private List<FuelTransaction> parseXLSX(File file) throws IOException {
-        throw new IOException("XLSX import not implemented (ask for code if you want it!)");
-    }
-
     // --- Helpers ---
-    private String getVal(String[] arr, Map<String, Integer> map, String key) {
-        Integer idx = map.get(key.toLowerCase());
-        if (idx == null || idx >= arr.length) return "";
-        return arr[idx].trim();
-    }
     private double parseDouble(String s) {
         try { return Double.parseDouble(s); } catch (Exception e) { return 0; }
     }
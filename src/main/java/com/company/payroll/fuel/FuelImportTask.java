@@ -0,0 +1,51 @@
+package com.company.payroll.fuel;
+
+import javafx.concurrent.Task;
+
+import java.io.File;
+
+/**
+ * Runs a FuelImporter in the background. Progress is the fraction of the file read (indeterminate
+ * if unknown) and the message carries rows parsed, inserted, skipped and rows per second.
+ * requestCancel stops the import at the next row and rolls back everything it has imported; the
+ * task then fails with a CancellationException once the rollback is done. (Task.cancel ends the
+ * task straight away, while the rollback is still running.)
+ */
+public class FuelImportTask extends Task<FuelImporter.Result> {
+    private static final long UPDATE_INTERVAL_NANOS = 100_000_000L; // at most 10 UI updates per second
+
+    private final FuelImporter importer;
+    private final File file;
+    private long lastUpdate = 0;
+    private volatile boolean cancelRequested = false;
+
+    public FuelImportTask(FuelImporter importer, File file) {
+        this.importer = importer;
+        this.file = file;
+        updateTitle("Importing " + file.getName());
+    }
+
+    @Override
+    protected FuelImporter.Result call() throws Exception {
+        updateMessage("Reading " + file.getName() + "...");
+        FuelImporter.Result result = importer.importFile(file, this::report, () -> cancelRequested || isCancelled());
+        updateProgress(1, 1);
+        return result;
+    }
+
+    public void requestCancel() {
+        cancelRequested = true;
+        updateMessage("Cancelling, rolling back rows imported so far...");
+    }
+
+    private void report(FuelImporter.Progress p) {
+        if (cancelRequested) return; // keep the "Cancelling" message
+        long now = System.nanoTime();
+        if (now - lastUpdate < UPDATE_INTERVAL_NANOS) return;
+        lastUpdate = now;
+        double fraction = p.getFraction();
+        if (fraction >= 0) updateProgress(fraction, 1);
+        updateMessage(String.format("%,d rows read, %,d inserted, %,d skipped (%,.0f rows/s)",
+                p.getRowsParsed(), p.getInserted(), p.getSkipped(), p.getRowsPerSecond()));
+    }
+}
@@ -0,0 +1,706 @@
+package com.company.payroll.fuel;
+
+import com.company.payroll.employees.EmployeeDAO;
+import com.company.payroll.io.CountingInputStream;
+import com.company.payroll.io.CsvChunker;
+import com.company.payroll.io.CsvReader;
+import com.company.payroll.io.FileHash;
+import com.company.payroll.io.RowReader;
+import com.company.payroll.io.XlsxReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Imports a fuel card statement (.csv, .csv.gz or .xlsx), or a .zip archive of statements, into
+ * fuel_transactions. Compressed input is decompressed as it is parsed, without temporary files.
+ *
+ * Rows are parsed, matched to drivers, deduplicated and inserted in batches as they are read, so
+ * memory use doesn't grow with the size of the file. Rows are committed every CHECKPOINT_ROWS
+ * rows together with a checkpoint in import_jobs (file hash, byte offset, row count), so an
+ * import that fails, is stopped or dies with the application can be resumed by importing the
+ * same file again. An import cancelled by the user is rolled back as a whole instead. Every row
+ * is tagged with the import's batch id, so the whole import can be rolled back later
+ * (FuelImportBatchDAO). No JavaFX dependencies; see FuelImportTask for running it in the
+ * background.
+ *
+ * Large CSV files are memory-mapped and split into record-aligned chunks that are parsed on
+ * several threads. Driver matching, deduplication and the inserts stay on the calling thread,
+ * which consumes the parsed chunks in file order, so the result is the same as a serial import.
+ */
+public class FuelImporter {
+    private static final Logger log = LoggerFactory.getLogger(FuelImporter.class);
+
+    private static final int PROGRESS_INTERVAL = 500; // rows between progress reports while parsing
+    private static final int CHECKPOINT_ROWS = 20_000; // rows per commit and checkpoint
+    private static final long PARALLEL_THRESHOLD = 32L * 1024 * 1024; // smaller files parse fast enough serially
+    private static final long CHUNK_SIZE = 4L * 1024 * 1024;
+    private static final int STREAM_BUFFER = 64 * 1024; // for compressed input
+
+    private final FuelTransactionDAO dao;
+    private final EmployeeDAO employeeDAO;
+    private final FuelImportJobDAO jobDAO;
+    private final FuelImportBatchDAO batchDAO;
+    private final FuelImportLogDAO importLog;
+    // One import at a time per importer: a second writer would only wait on SQLite's write lock
+    private final ReentrantLock importLock = new ReentrantLock();
+
+    public FuelImporter(FuelTransactionDAO dao, EmployeeDAO employeeDAO, FuelImportJobDAO jobDAO,
+                        FuelImportBatchDAO batchDAO, FuelImportLogDAO importLog) {
+        this.dao = dao;
+        this.employeeDAO = employeeDAO;
+        this.jobDAO = jobDAO;
+        this.batchDAO = batchDAO;
+        this.importLog = importLog;
+    }
+
+    public static boolean isSupported(File file) {
+        return isStatement(file.getName()) || isZip(file.getName());
+    }
+
+    // A single statement: .csv, .csv.gz or .xlsx
+    private static boolean isStatement(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".csv") || lower.endsWith(".csv.gz") || lower.endsWith(".xlsx");
+    }
+
+    private static boolean isZip(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(".zip");
+    }
+
+    private static boolean isGzip(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+    private static boolean isXlsx(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(".xlsx");
+    }
+
+    public Result importFile(File file, ProgressListener listener, BooleanSupplier cancelled) throws IOException {
+        return importFile(file, null, listener, cancelled, null);
+    }
+
+    /**
+     * Imports the file, resuming from its last checkpoint if an earlier import of the same content
+     * was interrupted. fileHash is its SHA-256 (see FileHash), or null to compute it here.
+     *
+     * The listener (may be null) is called on the importing thread. Once cancelled (may be null)
+     * returns true the import stops with a CancellationException after its whole batch,
+     * checkpointed rows included, has been rolled back. Once stopped (may be null) returns true,
+     * or the thread is interrupted, it stops with a StoppedException instead: only rows since the
+     * last checkpoint are rolled back, so importing the file again resumes from there, as after a
+     * crash. If another import through this importer is running, waits for it to finish first.
+     * A completed import is recorded in import_log, so the watch folder won't import the file again.
+     */
+    public Result importFile(File file, String fileHash, ProgressListener listener, BooleanSupplier cancelled,
+                             BooleanSupplier stopped) throws IOException {
+        if (!isSupported(file)) throw new IOException("Unsupported file type: " + file.getName());
+        try {
+            importLock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StoppedException();
+        }
+        try {
+            String hash = fileHash != null ? fileHash : FileHash.sha256(file.toPath());
+            // Driver index is built once per import
+            DriverResolver resolver = new DriverResolver(employeeDAO.getAll(), dao.getCardOwners());
+            Result result;
+            if (isZip(file.getName())) {
+                result = importArchive(file, hash, resolver, listener, cancelled, stopped);
+            } else {
+                ImportRun run = startRun(hash, file.getName(), 0, file.getName(), resolver, null, listener,
+                        cancelled, stopped);
+                int cores = Runtime.getRuntime().availableProcessors();
+                if (isXlsx(file.getName())) {
+                    result = importXlsx(file, run);
+                } else if (isGzip(file.getName())) {
+                    result = importCsvGzip(file, run);
+                } else if (cores > 1 && file.length() >= PARALLEL_THRESHOLD) {
+                    // One core is left for the writer (this thread)
+                    result = importCsvParallel(file, cores - 1, run);
+                } else {
+                    result = importCsv(file, run);
+                }
+            }
+            importLog.record(hash, file.getName(), result.getInserted(), result.getSkipped());
+            return result;
+        } catch (StoppedException e) {
+            throw e; // the checkpoint is kept for resuming
+        } catch (CancellationException e) {
+            discard(file, fileHash);
+            throw e;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            importLock.unlock();
+        }
+    }
+
+    // Rolls back the batch of a cancelled import, with its checkpoints. Called holding importLock,
+    // so no other import can resume the batch meanwhile.
+    private void discard(File file, String fileHash) {
+        try {
+            String hash = fileHash != null ? fileHash : FileHash.sha256(file.toPath());
+            int batchId;
+            if (isZip(file.getName())) {
+                batchId = jobDAO.findUnfinishedBatch(hash + "!");
+            } else {
+                FuelImportJobDAO.Job job = jobDAO.findUnfinished(hash);
+                batchId = job != null ? job.getBatchId() : 0;
+            }
+            if (batchId == 0) return;
+            int deleted = batchDAO.rollback(batchId);
+            log.info("Cancelled import of {}: rolled back {} rows", file.getName(), deleted);
+        } catch (IOException | RuntimeException e) {
+            // The checkpoint is left in place, so importing the file again resumes instead
+            log.warn("Could not roll back cancelled import of {}", file.getName(), e);
+        }
+    }
+
+    // Resumes the job's unfinished import, or prepares one in the given batch (0 = a new batch
+    // named batchName). A new job and batch are only written by begin, once the header is accepted.
+    private ImportRun startRun(String jobKey, String name, int batchId, String batchName, DriverResolver resolver,
+                               Result before, ProgressListener listener, BooleanSupplier cancelled,
+                               BooleanSupplier stopped) {
+        FuelImportJobDAO.Job job = jobDAO.findUnfinished(jobKey);
+        if (job == null || job.getBatchId() == 0) {
+            job = null;
+        } else {
+            // A resumed import adds to the same batch, so it can still be rolled back as a whole
+            batchId = job.getBatchId();
+            log.info("Resuming import of {} after row {}", name, job.getRowsDone());
+        }
+        return new ImportRun(jobKey, name, batchId, batchName, job, resolver, new FuelDedupFilter(dao), before,
+                listener, cancelled, stopped);
+    }
+
+    // Registers a new run's job (and batch, if it has none yet). Called when the first row is about
+    // to be written, so a file whose header is rejected leaves no empty batch or unfinished job.
+    private void begin(ImportRun run) {
+        if (run.begun) return;
+        run.begun = true;
+        if (run.batchId == 0) run.batchId = batchDAO.create(run.batchName, run.batchHash);
+        jobDAO.start(run.fileHash, run.name, run.batchId);
+    }
+
+    /*
+     * Imports each statement in a .zip archive, in archive order, as one batch. The archive is
+     * read as a stream: CSV entries are decompressed straight into the parser. An .xlsx entry needs
+     * its parts out of order, so it is read through a ZipFile on the same archive, decompressing
+     * the entry once per part rather than holding or extracting it. Each entry has its own
+     * checkpoint, keyed "archive hash!entry name"; resuming an archive skips the entries that were
+     * completed and continues the interrupted one.
+     */
+    private Result importArchive(File file, String hash, DriverResolver resolver, ProgressListener listener,
+                                 BooleanSupplier cancelled, BooleanSupplier stopped) throws IOException {
+        String prefix = hash + "!";
+        int batchId = jobDAO.findUnfinishedBatch(prefix); // 0: created with the first entry written
+        boolean resuming = batchId != 0;
+
+        long size = file.length();
+        CountingInputStream compressed = new CountingInputStream(new FileInputStream(file));
+        DoubleSupplier fraction = () -> size > 0 ? Math.min(1.0, (double) compressed.getCount() / size) : -1;
+        Result total = null;
+        int statements = 0;
+        try (ZipFile archive = new ZipFile(file);
+             ZipInputStream zip = new ZipInputStream(new BufferedInputStream(compressed, STREAM_BUFFER))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String name = entry.getName();
+                if (entry.isDirectory() || !isStatement(name)) continue;
+                statements++;
+                String key = prefix + name;
+                if (resuming && jobDAO.isComplete(key, batchId)) continue;
+                ImportRun run = startRun(key, file.getName() + "!" + name, batchId, file.getName(), resolver, total,
+                        listener, cancelled, stopped);
+                run.batchHash = hash;
+                Result result;
+                if (isXlsx(name)) {
+                    ZipEntry workbook = archive.getEntry(name);
+                    if (workbook == null) throw new IOException(name + " not found in " + file.getName());
+                    try (XlsxReader xlsx = new XlsxReader(archive, workbook)) {
+                        // The stream stays at the start of the entry; progress follows the sheet instead
+                        long start = compressed.getCount();
+                        long length = Math.max(workbook.getCompressedSize(), 0);
+                        DoubleSupplier entryFraction = () -> size > 0 && xlsx.getProgress() >= 0
+                                ? Math.min(1.0, (start + xlsx.getProgress() * length) / size)
+                                : fraction.getAsDouble();
+                        result = importXlsx(xlsx, name, entryFraction, run);
+                    }
+                } else {
+                    InputStream in = new FilterInputStream(zip) {
+                        @Override
+                        public void close() {
+                            // the entry's reader must not close the archive
+                        }
+                    };
+                    if (isGzip(name)) in = new GZIPInputStream(in, STREAM_BUFFER);
+                    try (CsvReader csv = new CsvReader(in)) {
+                        result = importCsvStream(csv, name, fraction, run);
+                    }
+                }
+                total = total == null ? result : total.plus(result);
+                batchId = run.batchId;
+            }
+        }
+        if (statements == 0) throw new IOException("No .csv or .xlsx files in " + file.getName());
+        return total != null ? total : new Result(0, 0, 0, 0, 0, batchId, resolver);
+    }
+
+    // Checkpoints of .xlsx imports record rows only; the sheet is re-read up to that row on resume
+    private Result importXlsx(File file, ImportRun run) throws IOException {
+        try (XlsxReader xlsx = new XlsxReader(file)) { // first worksheet
+            return importXlsx(xlsx, file.getName(), xlsx::getProgress, run);
+        }
+    }
+
+    private Result importXlsx(XlsxReader xlsx, String name, DoubleSupplier fraction, ImportRun run) throws IOException {
+        String[] headers = xlsx.readRow();
+        if (headers == null) return write(Collections.emptyIterator(), new Cursor(0, 0), run.newProgress(() -> 1), run);
+        for (long i = 0; i < run.startRow; i++) {
+            if (xlsx.readRow() == null) break;
+        }
+        return importRows(xlsx, detectFormat(name, headers), () -> 0, fraction, run);
+    }
+
+    // Checkpoints of CSV imports record the byte offset after the last committed row
+    private Result importCsv(File file, ImportRun run) throws IOException {
+        CsvHeader header = readCsvHeader(file);
+        if (header == null) return write(Collections.emptyIterator(), new Cursor(0, 0), run.newProgress(() -> 1), run);
+        long start = Math.max(header.end, run.startOffset);
+        try (FileInputStream in = new FileInputStream(file)) {
+            in.getChannel().position(start);
+            CsvReader csv = new CsvReader(in, start, file.length());
+            return importRows(csv, header.plan, csv::getBytePosition, csv::getProgress, run);
+        }
+    }
+
+    // Decompressed while parsing. Progress is the share of the compressed file read, and offsets in
+    // checkpoints are uncompressed; gzip cannot seek, so a resumed import re-reads up to the checkpoint.
+    private Result importCsvGzip(File file, ImportRun run) throws IOException {
+        long size = file.length();
+        CountingInputStream compressed = new CountingInputStream(new FileInputStream(file));
+        DoubleSupplier fraction = () -> size > 0 ? Math.min(1.0, (double) compressed.getCount() / size) : -1;
+        try (CsvReader csv = new CsvReader(new GZIPInputStream(compressed, STREAM_BUFFER))) {
+            return importCsvStream(csv, file.getName(), fraction, run);
+        }
+    }
+
+    // A CSV that can only be read front to back: rows before the checkpoint are parsed but not written
+    private Result importCsvStream(CsvReader csv, String name, DoubleSupplier fraction, ImportRun run)
+            throws IOException {
+        String[] headers = csv.readRow();
+        if (headers == null) return write(Collections.emptyIterator(), new Cursor(0, 0), run.newProgress(() -> 1), run);
+        FuelCardFormat.Plan plan = detectFormat(name, headers);
+        while (csv.getBytePosition() < run.startOffset && csv.readRow() != null) {
+            // skip
+        }
+        return importRows(csv, plan, csv::getBytePosition, fraction, run);
+    }
+
+    private Result importRows(RowReader reader, FuelCardFormat.Plan plan, LongSupplier position,
+                              DoubleSupplier fraction, ImportRun run) {
+        Progress progress = run.newProgress(fraction);
+        Iterator<FuelTransaction> parsed = reader.rows()
+                .peek(arr -> {
+                    if (++progress.rowsParsed % PROGRESS_INTERVAL == 0 && run.listener != null) {
+                        run.listener.progress(progress);
+                    }
+                })
+                .map(plan::toTransaction)
+                .filter(Objects::nonNull)
+                .iterator();
+        // Rows are read lazily, so after next() the reader is positioned just past that row
+        Cursor cursor = new Cursor(position.getAsLong(), run.startRow);
+        Iterator<FuelTransaction> tracked = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return parsed.hasNext();
+            }
+
+            @Override
+            public FuelTransaction next() {
+                FuelTransaction t = parsed.next();
+                cursor.byteOffset = position.getAsLong();
+                cursor.rows = run.startRow + progress.rowsParsed;
+                return t;
+            }
+        };
+        return write(tracked, cursor, progress, run);
+    }
+
+    // Parses chunks on a thread pool, keeping a bounded number in flight, and writes them in order
+    private Result importCsvParallel(File file, int threads, ImportRun run) throws IOException {
+        CsvHeader header = readCsvHeader(file);
+        if (header == null) return write(Collections.emptyIterator(), new Cursor(0, 0), run.newProgress(() -> 1), run);
+        long dataStart = Math.max(header.end, run.startOffset);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<CsvChunker.Chunk> chunks = CsvChunker.split(channel, dataStart, CHUNK_SIZE);
+            ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "fuel-csv-parser");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                long[] consumedTo = {dataStart};
+                Progress progress = run.newProgress(() -> size > 0 ? (double) consumedTo[0] / size : -1);
+                Cursor cursor = new Cursor(dataStart, run.startRow);
+                Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+                Iterator<CsvChunker.Chunk> pending = chunks.iterator();
+
+                Iterator<FuelTransaction> parsed = new Iterator<>() {
+                    private ParsedChunk current;
+                    private int index = 0;
+                    private long rowBase = run.startRow; // data rows before the current chunk
+
+                    @Override
+                    public boolean hasNext() {
+                        while (current == null || index == current.transactions.size()) {
+                            while (inFlight.size() < threads * 2 && pending.hasNext()) {
+                                CsvChunker.Chunk chunk = pending.next();
+                                inFlight.add(pool.submit(() -> parseChunk(channel, chunk, header.plan)));
+                            }
+                            if (inFlight.isEmpty()) return false;
+                            if (current != null) rowBase += current.rows;
+                            current = await(inFlight.poll());
+                            index = 0;
+                            progress.rowsParsed += current.rows;
+                            consumedTo[0] = current.end;
+                            if (run.listener != null) run.listener.progress(progress);
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public FuelTransaction next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        cursor.byteOffset = current.rowEnds[index];
+                        cursor.rows = rowBase + current.rowNumbers[index];
+                        return current.transactions.get(index++);
+                    }
+                };
+                return write(parsed, cursor, progress, run);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    // Runs on a parser thread: no database access and no shared state
+    private ParsedChunk parseChunk(FileChannel channel, CsvChunker.Chunk chunk, FuelCardFormat.Plan plan)
+            throws IOException {
+        List<FuelTransaction> transactions = new ArrayList<>();
+        long[] rowEnds = new long[1024];
+        int[] rowNumbers = new int[1024];
+        int rows = 0;
+        try (CsvReader reader = CsvChunker.open(channel, chunk)) {
+            String[] arr;
+            while ((arr = reader.readRow()) != null) {
+                rows++;
+                FuelTransaction t = plan.toTransaction(arr);
+                if (t == null) continue;
+                int i = transactions.size();
+                if (i == rowEnds.length) {
+                    rowEnds = Arrays.copyOf(rowEnds, i * 2);
+                    rowNumbers = Arrays.copyOf(rowNumbers, i * 2);
+                }
+                rowEnds[i] = reader.getBytePosition();
+                rowNumbers[i] = rows;
+                transactions.add(t);
+            }
+        }
+        return new ParsedChunk(transactions, rowEnds, rowNumbers, rows, chunk.getEnd());
+    }
+
+    private static ParsedChunk await(Future<ParsedChunk> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StoppedException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw new UncheckedIOException((IOException) cause);
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static class ParsedChunk {
+        final List<FuelTransaction> transactions;
+        final long[] rowEnds;   // byte offset just past each transaction's row
+        final int[] rowNumbers; // 1-based row of each transaction within the chunk
+        final int rows;
+        final long end;
+
+        ParsedChunk(List<FuelTransaction> transactions, long[] rowEnds, int[] rowNumbers, int rows, long end) {
+            this.transactions = transactions;
+            this.rowEnds = rowEnds;
+            this.rowNumbers = rowNumbers;
+            this.rows = rows;
+            this.end = end;
+        }
+    }
+
+    // Matches drivers, drops duplicates and inserts, in input order, on the calling thread.
+    // Commits every CHECKPOINT_ROWS rows together with the cursor position of the last row written.
+    private Result write(Iterator<FuelTransaction> parsed, Cursor cursor, Progress progress, ImportRun run) {
+        begin(run);
+        Spliterator<FuelTransaction> spliterator = Spliterators.spliteratorUnknownSize(parsed, Spliterator.ORDERED);
+        Iterator<FuelTransaction> accepted = StreamSupport.stream(spliterator, false)
+                .peek(t -> {
+                    t.setEmployeeId(run.resolver.resolve(t.getDriverName(), t.getUnit(), t.getCardNumber()));
+                    t.setImportBatchId(run.batchId);
+                })
+                .filter(run.dedup::addIfNew)
+                .iterator();
+        // Checked on every hasNext(), including the last one before addAll commits
+        Iterator<FuelTransaction> rows = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                if (run.stopped != null && run.stopped.getAsBoolean()) throw new StoppedException();
+                if (run.cancelled != null && run.cancelled.getAsBoolean()) {
+                    throw new CancellationException("Import cancelled");
+                }
+                return accepted.hasNext();
+            }
+
+            @Override
+            public FuelTransaction next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return accepted.next();
+            }
+        };
+
+        FuelTransactionDAO.BulkInsertResult result = dao.addAll(rows,
+                FuelTransactionDAO.DEFAULT_BATCH_SIZE, CHECKPOINT_ROWS,
+                (inserted, skipped) -> {
+                    progress.inserted += inserted;
+                    progress.dbSkipped += skipped;
+                    if (run.listener != null) run.listener.progress(progress);
+                },
+                (conn, last) -> jobDAO.checkpoint(conn, run.fileHash, cursor.byteOffset, cursor.rows,
+                        run.priorInserted + (int) progress.inserted,
+                        run.priorSkipped + (int) (progress.dbSkipped + run.dedup.getDuplicates()), last));
+        if (run.listener != null) run.listener.progress(progress);
+        return new Result(progress.rowsParsed, result.getInserted(), result.getSkipped() + run.dedup.getDuplicates(),
+                progress.elapsedNanos(), run.startRow, run.batchId, run.resolver);
+    }
+
+    // The state of one importFile call
+    private static class ImportRun {
+        final String fileHash; // the job's key
+        final String name;
+        int batchId; // 0 until begin creates the batch
+        final String batchName;
+        String batchHash; // of the file the batch is for; the archive's for an entry of a .zip
+        boolean begun;
+        final long startOffset;
+        final long startRow;
+        final int priorInserted;
+        final int priorSkipped;
+        final DriverResolver resolver;
+        final FuelDedupFilter dedup;
+        final Result before; // earlier entries of the same archive, or null
+        final ProgressListener listener;
+        final BooleanSupplier cancelled; // by the user: the whole batch is rolled back
+        final BooleanSupplier stopped; // e.g. by the application closing: the import can be resumed
+
+        ImportRun(String fileHash, String name, int batchId, String batchName, FuelImportJobDAO.Job job,
+                  DriverResolver resolver, FuelDedupFilter dedup, Result before, ProgressListener listener,
+                  BooleanSupplier cancelled, BooleanSupplier stopped) {
+            this.fileHash = fileHash;
+            this.name = name;
+            this.batchId = batchId;
+            this.batchName = batchName;
+            this.batchHash = fileHash;
+            this.begun = job != null;
+            this.startOffset = job != null ? job.getByteOffset() : 0;
+            this.startRow = job != null ? job.getRowsDone() : 0;
+            this.priorInserted = job != null ? job.getInserted() : 0;
+            this.priorSkipped = job != null ? job.getSkipped() : 0;
+            this.resolver = resolver;
+            this.dedup = dedup;
+            this.before = before;
+            this.listener = listener;
+            this.cancelled = cancelled;
+            this.stopped = stopped;
+        }
+
+        Progress newProgress(DoubleSupplier fraction) {
+            return new Progress(fraction, dedup, before);
+        }
+    }
+
+    // Position in the file just past the last row handed to the writer
+    private static class Cursor {
+        long byteOffset;
+        long rows;
+
+        Cursor(long byteOffset, long rows) {
+            this.byteOffset = byteOffset;
+            this.rows = rows;
+        }
+    }
+
+    private static class CsvHeader {
+        final FuelCardFormat.Plan plan;
+        final long end;
+
+        CsvHeader(FuelCardFormat.Plan plan, long end) {
+            this.plan = plan;
+            this.end = end;
+        }
+    }
+
+    // The header row and the byte offset where data starts, or null for an empty file
+    private static CsvHeader readCsvHeader(File file) throws IOException {
+        try (CsvReader csv = new CsvReader(new FileInputStream(file))) {
+            String[] headers = csv.readRow();
+            return headers != null ? new CsvHeader(detectFormat(file.getName(), headers), csv.getBytePosition()) : null;
+        }
+    }
+
+    private static FuelCardFormat.Plan detectFormat(String name, String[] headers) throws IOException {
+        FuelCardFormat.Plan plan = FuelCardFormat.detect(headers);
+        log.info("Reading {} as {} format ({} fields mapped)", name, plan.getFormat().getName(),
+                plan.getMappedFields().size());
+        return plan;
+    }
+
+    /**
+     * An import was stopped without being cancelled (the application or the watch folder is
+     * closing). Its last checkpoint is kept, so importing the file again resumes from there.
+     */
+    public static class StoppedException extends CancellationException {
+        public StoppedException() {
+            super("Import stopped");
+        }
+    }
+
+    /**
+     * Receives progress while an import runs, on the importing thread.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void progress(Progress progress);
+    }
+
+    /**
+     * Live counters of a running import. For a .zip archive they include the entries already read.
+     */
+    public static class Progress {
+        private final DoubleSupplier fraction;
+        private final FuelDedupFilter dedup;
+        private final Result before;
+        private final long startNanos = System.nanoTime();
+        // This entry (or file) only
+        private long rowsParsed = 0;
+        private long inserted = 0;
+        private long dbSkipped = 0;
+
+        Progress(DoubleSupplier fraction, FuelDedupFilter dedup, Result before) {
+            this.fraction = fraction;
+            this.dedup = dedup;
+            this.before = before;
+        }
+
+        public long getRowsParsed() { return rowsParsed + (before != null ? before.rowsParsed : 0); }
+        public long getInserted() { return inserted + (before != null ? before.inserted : 0); }
+        public long getSkipped() { return dbSkipped + dedup.getDuplicates() + (before != null ? before.skipped : 0); }
+
+        /**
+         * Fraction of the file read (0..1), or -1 if unknown.
+         */
+        public double getFraction() { return fraction.getAsDouble(); }
+
+        public long elapsedNanos() { return System.nanoTime() - startNanos; }
+
+        public double getRowsPerSecond() {
+            long nanos = elapsedNanos() + (before != null ? before.elapsedNanos : 0);
+            return nanos > 0 ? getRowsParsed() * 1_000_000_000.0 / nanos : 0;
+        }
+    }
+
+    /**
+     * Outcome of a completed import (counting this run only), with the driver matching report.
+     */
+    public static class Result {
+        private final long rowsParsed;
+        private final int inserted;
+        private final int skipped;
+        private final long elapsedNanos;
+        private final long resumedAfterRow;
+        private final int batchId;
+        private final DriverResolver resolver;
+
+        Result(long rowsParsed, int inserted, int skipped, long elapsedNanos, long resumedAfterRow, int batchId,
+               DriverResolver resolver) {
+            this.rowsParsed = rowsParsed;
+            this.inserted = inserted;
+            this.skipped = skipped;
+            this.elapsedNanos = elapsedNanos;
+            this.resumedAfterRow = resumedAfterRow;
+            this.batchId = batchId;
+            this.resolver = resolver;
+        }
+
+        public long getRowsParsed() { return rowsParsed; }
+        public int getInserted() { return inserted; }
+        public int getSkipped() { return skipped; }
+        public long getElapsedNanos() { return elapsedNanos; }
+        /** Data rows already imported by an earlier, interrupted run (0 for a fresh import). */
+        public long getResumedAfterRow() { return resumedAfterRow; }
+        /** Import batch the rows were tagged with; see FuelImportBatchDAO.rollback. */
+        public int getBatchId() { return batchId; }
+        public DriverResolver getResolver() { return resolver; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos > 0 ? rowsParsed * 1_000_000_000.0 / elapsedNanos : 0;
+        }
+
+        // Totals of two entries of the same archive
+        Result plus(Result next) {
+            return new Result(rowsParsed + next.rowsParsed, inserted + next.inserted, skipped + next.skipped,
+                    elapsedNanos + next.elapsedNanos, resumedAfterRow + next.resumedAfterRow, batchId, resolver);
+        }
+    }
+}
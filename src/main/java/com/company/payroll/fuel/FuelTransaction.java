@@ -6,6 +6,7 @@ public class FuelTransaction {
             locationName, city, stateProv, item, discType, dbField, currency;
     private double fees, unitPrice, discPPU, discCost, qty, discAmt, amt;
     private int employeeId;
+    private int importBatchId; // 0 = entered by hand
 
     public FuelTransaction(int id, String cardNumber, String tranDate, String tranTime, String invoice,
                            String unit, String driverName, String odometer, String locationName, String city,
@@ -43,6 +44,8 @@ public class FuelTransaction {
     public String getCurrency() { return currency; }
     public int getEmployeeId() { return employeeId; }
     public void setEmployeeId(int id) { this.employeeId = id; }
+    public int getImportBatchId() { return importBatchId; }
+    public void setImportBatchId(int id) { this.importBatchId = id; }
 
     // --- ALIAS for DAO compatibility ---
     public String getDb() {
@@ -1,53 +1,34 @@
 package com.company.payroll.fuel;
 
+import com.company.payroll.db.DatabaseManager;
+import com.company.payroll.db.SchemaMigrator;
 import com.company.payroll.employees.Employee;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public class FuelTransactionDAO {
-    private static final String DB_URL = "jdbc:sqlite:payroll.db";
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final String INSERT_COLUMNS = """
+            card_number, tran_date, tran_time, invoice, unit, driver_name, odometer, location_name, city,
+            state_prov, fees, item, unit_price, disc_ppu, disc_cost, qty, disc_amt, disc_type, amt, db, currency, employee_id, tran_day, dedup_key, import_batch_id
+        """;
 
     public FuelTransactionDAO() {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            String sql = """
-                CREATE TABLE IF NOT EXISTS fuel_transactions (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    card_number TEXT,
-                    tran_date TEXT,
-                    tran_time TEXT,
-                    invoice TEXT,
-                    unit TEXT,
-                    driver_name TEXT,
-                    odometer TEXT,
-                    location_name TEXT,
-                    city TEXT,
-                    state_prov TEXT,
-                    fees REAL,
-                    item TEXT,
-                    unit_price REAL,
-                    disc_ppu REAL,
-                    disc_cost REAL,
-                    qty REAL,
-                    disc_amt REAL,
-                    disc_type TEXT,
-                    amt REAL,
-                    db TEXT,
-                    currency TEXT,
-                    employee_id INTEGER,
-                    UNIQUE(invoice, tran_date, location_name, amt)
-                );
-            """;
-            conn.createStatement().execute(sql);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        // Tables and indexes are created by SchemaMigrator; only the first call touches the database
+        SchemaMigrator.migrate();
     }
 
     public List<FuelTransaction> getAll() {
         List<FuelTransaction> list = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             String sql = "SELECT * FROM fuel_transactions";
             ResultSet rs = conn.createStatement().executeQuery(sql);
             while (rs.next()) {
@@ -61,36 +42,10 @@ public class FuelTransactionDAO {
     }
 
     public int add(FuelTransaction t) {
-        String sql = """
-        INSERT INTO fuel_transactions (
-            card_number, tran_date, tran_time, invoice, unit, driver_name, odometer, location_name, city,
-            state_prov, fees, item, unit_price, disc_ppu, disc_cost, qty, disc_amt, disc_type, amt, db, currency, employee_id
-        ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        """;
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        String sql = "INSERT INTO fuel_transactions (" + INSERT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (Connection conn = DatabaseManager.getConnection()) {
             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            ps.setString(1, t.getCardNumber());
-            ps.setString(2, t.getTranDate());
-            ps.setString(3, t.getTranTime());
-            ps.setString(4, t.getInvoice());
-            ps.setString(5, t.getUnit());
-            ps.setString(6, t.getDriverName());
-            ps.setString(7, t.getOdometer());
-            ps.setString(8, t.getLocationName());
-            ps.setString(9, t.getCity());
-            ps.setString(10, t.getStateProv());
-            ps.setDouble(11, t.getFees());
-            ps.setString(12, t.getItem());
-            ps.setDouble(13, t.getUnitPrice());
-            ps.setDouble(14, t.getDiscPPU());
-            ps.setDouble(15, t.getDiscCost());
-            ps.setDouble(16, t.getQty());
-            ps.setDouble(17, t.getDiscAmt());
-            ps.setString(18, t.getDiscType());
-            ps.setDouble(19, t.getAmt());
-            ps.setString(20, t.getDb());
-            ps.setString(21, t.getCurrency());
-            ps.setObject(22, t.getEmployeeId());
+            bindFields(ps, t);
             ps.executeUpdate();
             ResultSet keys = ps.getGeneratedKeys();
             if (keys.next()) return keys.getInt(1);
@@ -104,62 +59,165 @@ public class FuelTransactionDAO {
         return -1;
     }
 
-    // Duplicate logic: Invoice + TranDate + LocationName + Amt
+    /**
+     * Inserts many transactions in a single transaction using JDBC batches of DEFAULT_BATCH_SIZE.
+     * Rows that hit the UNIQUE(invoice, tran_date, location_name, amt) constraint are skipped.
+     */
+    public BulkInsertResult addAll(Iterable<FuelTransaction> transactions) {
+        return addAll(transactions.iterator(), DEFAULT_BATCH_SIZE);
+    }
+
+    public BulkInsertResult addAll(Stream<FuelTransaction> transactions, int batchSize) {
+        return addAll(transactions.iterator(), batchSize);
+    }
+
+    /**
+     * Inserts all transactions from the iterator with INSERT OR IGNORE, executing a JDBC batch every
+     * batchSize rows and committing once at the end. On any failure the whole insert is rolled back
+     * and a RuntimeException is thrown, so either everything or nothing is imported.
+     */
+    public BulkInsertResult addAll(Iterator<FuelTransaction> transactions, int batchSize) {
+        return addAll(transactions, batchSize, null);
+    }
+
+    /**
+     * As addAll(Iterator, int), reporting each executed batch to the listener (may be null).
+     * An exception thrown by the iterator, e.g. to cancel the import, rolls everything back.
+     */
+    public BulkInsertResult addAll(Iterator<FuelTransaction> transactions, int batchSize, BatchListener listener) {
+        return addAll(transactions, batchSize, 0, listener, null);
+    }
+
+    /**
+     * As addAll(Iterator, int, BatchListener), but commits whenever at least commitEvery rows
+     * have been written since the last commit (never, if commitEvery is 0). The hook (may be
+     * null) runs just before each commit, on the same connection. On failure only the rows
+     * since the last commit are rolled back.
+     */
+    public BulkInsertResult addAll(Iterator<FuelTransaction> transactions, int batchSize, int commitEvery,
+                                   BatchListener listener, CommitHook hook) {
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be >= 1");
+        String sql = "INSERT OR IGNORE INTO fuel_transactions (" + INSERT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        int inserted = 0, skipped = 0;
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                int pending = 0, uncommitted = 0;
+                while (transactions.hasNext()) {
+                    bindFields(ps, transactions.next());
+                    ps.addBatch();
+                    if (++pending == batchSize) {
+                        int added = countInserted(ps.executeBatch());
+                        inserted += added;
+                        skipped += pending - added;
+                        if (listener != null) listener.batchWritten(added, pending - added);
+                        uncommitted += pending;
+                        pending = 0;
+                        if (commitEvery > 0 && uncommitted >= commitEvery) {
+                            if (hook != null) hook.beforeCommit(conn, false);
+                            conn.commit();
+                            uncommitted = 0;
+                        }
+                    }
+                }
+                if (pending > 0) {
+                    int added = countInserted(ps.executeBatch());
+                    inserted += added;
+                    skipped += pending - added;
+                    if (listener != null) listener.batchWritten(added, pending - added);
+                }
+                if (hook != null) hook.beforeCommit(conn, true);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Bulk insert of fuel transactions failed: " + e.getMessage(), e);
+        }
+        return new BulkInsertResult(inserted, skipped);
+    }
+
+    private static int countInserted(int[] updateCounts) {
+        int n = 0;
+        for (int c : updateCounts) {
+            if (c > 0) n += c;
+        }
+        return n;
+    }
+
+    // Duplicate logic: Invoice + TranDate + LocationName + Amt, normalized into the indexed dedup_key
     public boolean exists(String invoice, String tranDate, String locationName, double amt) {
-        String sql = """
-            SELECT COUNT(*) FROM fuel_transactions
-            WHERE LOWER(TRIM(invoice)) = ? AND
-                  LOWER(TRIM(tran_date)) = ? AND
-                  LOWER(TRIM(location_name)) = ? AND
-                  ROUND(amt, 2) = ROUND(?, 2)
-        """;
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        String sql = "SELECT 1 FROM fuel_transactions WHERE dedup_key = ? LIMIT 1";
+        try (Connection conn = DatabaseManager.getConnection()) {
             PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setString(1, invoice.trim().toLowerCase());
-            ps.setString(2, tranDate.trim().toLowerCase());
-            ps.setString(3, locationName.trim().toLowerCase());
-            ps.setDouble(4, amt);
+            ps.setString(1, FuelDedupFilter.key(invoice, tranDate, locationName, amt));
             ResultSet rs = ps.executeQuery();
-            return rs.next() && rs.getInt(1) > 0;
+            return rs.next();
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    /**
+     * Dedup keys of all transactions on the given epoch day, or of those without a parseable date
+     * when day is null. Served from the (tran_day, dedup_key) index without touching the table.
+     */
+    public List<String> getDedupKeysForDay(Long day) {
+        List<String> keys = new ArrayList<>();
+        String sql = day != null
+                ? "SELECT dedup_key FROM fuel_transactions WHERE tran_day = ?"
+                : "SELECT dedup_key FROM fuel_transactions WHERE tran_day IS NULL";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            if (day != null) ps.setLong(1, day);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                String key = rs.getString(1);
+                if (key != null) keys.add(key);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return keys;
+    }
+
+    /**
+     * Card numbers that earlier imports linked to exactly one employee, mapped to that employee's id.
+     * Cards seen with more than one employee are left out.
+     */
+    public Map<String, Integer> getCardOwners() {
+        Map<String, Integer> owners = new HashMap<>();
+        String sql = """
+            SELECT card_number, MIN(employee_id) AS employee_id FROM fuel_transactions
+            WHERE employee_id > 0 AND card_number IS NOT NULL AND card_number <> ''
+            GROUP BY card_number
+            HAVING MIN(employee_id) = MAX(employee_id)
+        """;
+        try (Connection conn = DatabaseManager.getConnection()) {
+            ResultSet rs = conn.createStatement().executeQuery(sql);
+            while (rs.next()) {
+                owners.put(rs.getString("card_number"), rs.getInt("employee_id"));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return owners;
+    }
+
     public void update(FuelTransaction t) {
         String sql = """
             UPDATE fuel_transactions SET
                 card_number=?, tran_date=?, tran_time=?, invoice=?, unit=?, driver_name=?, odometer=?, location_name=?,
                 city=?, state_prov=?, fees=?, item=?, unit_price=?, disc_ppu=?, disc_cost=?, qty=?, disc_amt=?,
-                disc_type=?, amt=?, db=?, currency=?, employee_id=?
+                disc_type=?, amt=?, db=?, currency=?, employee_id=?, tran_day=?, dedup_key=?, import_batch_id=?
             WHERE id=?
         """;
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setString(1, t.getCardNumber());
-            ps.setString(2, t.getTranDate());
-            ps.setString(3, t.getTranTime());
-            ps.setString(4, t.getInvoice());
-            ps.setString(5, t.getUnit());
-            ps.setString(6, t.getDriverName());
-            ps.setString(7, t.getOdometer());
-            ps.setString(8, t.getLocationName());
-            ps.setString(9, t.getCity());
-            ps.setString(10, t.getStateProv());
-            ps.setDouble(11, t.getFees());
-            ps.setString(12, t.getItem());
-            ps.setDouble(13, t.getUnitPrice());
-            ps.setDouble(14, t.getDiscPPU());
-            ps.setDouble(15, t.getDiscCost());
-            ps.setDouble(16, t.getQty());
-            ps.setDouble(17, t.getDiscAmt());
-            ps.setString(18, t.getDiscType());
-            ps.setDouble(19, t.getAmt());
-            ps.setString(20, t.getDb());
-            ps.setString(21, t.getCurrency());
-            ps.setObject(22, t.getEmployeeId());
-            ps.setInt(23, t.getId());
+            bindFields(ps, t);
+            ps.setInt(26, t.getId());
             ps.executeUpdate();
         } catch (SQLException e) {
             e.printStackTrace();
@@ -168,7 +226,7 @@ public class FuelTransactionDAO {
 
     public void delete(int id) {
         String sql = "DELETE FROM fuel_transactions WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setInt(1, id);
             ps.executeUpdate();
@@ -179,9 +237,21 @@ public class FuelTransactionDAO {
 
     /**
      * Get all fuel transactions for a given driver name and/or truck unit and date range (inclusive).
-     * If driverName or truckUnit is null, match all.
+     * If driverName or truckUnit is null, match all. Dates may be in any format FuelDates accepts;
+     * a date it cannot read matches no transactions, so the result is empty.
      */
     public List<FuelTransaction> getByDriverAndDateRange(String driverName, String truckUnit, String startDate, String endDate) {
+        LocalDate start = parseBound(startDate);
+        LocalDate end = parseBound(endDate);
+        if (start == INVALID_DATE || end == INVALID_DATE) return new ArrayList<>();
+        return getByDriverAndDateRange(driverName, truckUnit, start, end);
+    }
+
+    /**
+     * Returns all transactions for the driver/unit in the date range (inclusive). Dates are compared on
+     * the normalized tran_day column, so the (driver_name, unit, tran_day) index is used.
+     */
+    public List<FuelTransaction> getByDriverAndDateRange(String driverName, String truckUnit, LocalDate start, LocalDate end) {
         List<FuelTransaction> list = new ArrayList<>();
         StringBuilder sql = new StringBuilder("SELECT * FROM fuel_transactions WHERE 1=1");
         List<Object> params = new ArrayList<>();
@@ -193,17 +263,17 @@ public class FuelTransactionDAO {
             sql.append(" AND unit = ?");
             params.add(truckUnit);
         }
-        if (startDate != null) {
-            sql.append(" AND tran_date >= ?");
-            params.add(startDate);
+        if (start != null) {
+            sql.append(" AND tran_day >= ?");
+            params.add(start.toEpochDay());
         }
-        if (endDate != null) {
-            sql.append(" AND tran_date <= ?");
-            params.add(endDate);
+        if (end != null) {
+            sql.append(" AND tran_day <= ?");
+            params.add(end.toEpochDay());
         }
-        sql.append(" ORDER BY tran_date ASC");
+        sql.append(" ORDER BY tran_day ASC, tran_time ASC");
 
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             PreparedStatement ps = conn.prepareStatement(sql.toString());
             for (int i = 0; i < params.size(); ++i)
                 ps.setObject(i + 1, params.get(i));
@@ -219,16 +289,53 @@ public class FuelTransactionDAO {
     }
 
     /**
-     * Overload for getByDriverAndDateRange with LocalDate, returns all transactions in date range.
+     * Returns fuel transactions for all drivers in the date range (inclusive), ordered by date.
      */
-    public List<FuelTransaction> getByDriverAndDateRange(String driverName, String truckUnit, java.time.LocalDate start, java.time.LocalDate end) {
-        String startDate = start != null ? start.toString() : null;
-        String endDate = end != null ? end.toString() : null;
-        return getByDriverAndDateRange(driverName, truckUnit, startDate, endDate);
+    public List<FuelTransaction> getByDateRange(LocalDate start, LocalDate end) {
+        return getByDriverAndDateRange(null, null, start, end);
+    }
+
+    // Marks a date bound FuelDates cannot read
+    private static final LocalDate INVALID_DATE = LocalDate.MIN;
+
+    // null for no bound, INVALID_DATE if unreadable
+    private static LocalDate parseBound(String date) {
+        if (date == null || date.isBlank()) return null;
+        LocalDate parsed = FuelDates.parse(date);
+        return parsed != null ? parsed : INVALID_DATE;
+    }
+
+    // Binds parameters 1..24 in INSERT_COLUMNS order; tran_day and dedup_key are derived
+    private void bindFields(PreparedStatement ps, FuelTransaction t) throws SQLException {
+        ps.setString(1, t.getCardNumber());
+        ps.setString(2, t.getTranDate());
+        ps.setString(3, t.getTranTime());
+        ps.setString(4, t.getInvoice());
+        ps.setString(5, t.getUnit());
+        ps.setString(6, t.getDriverName());
+        ps.setString(7, t.getOdometer());
+        ps.setString(8, t.getLocationName());
+        ps.setString(9, t.getCity());
+        ps.setString(10, t.getStateProv());
+        ps.setDouble(11, t.getFees());
+        ps.setString(12, t.getItem());
+        ps.setDouble(13, t.getUnitPrice());
+        ps.setDouble(14, t.getDiscPPU());
+        ps.setDouble(15, t.getDiscCost());
+        ps.setDouble(16, t.getQty());
+        ps.setDouble(17, t.getDiscAmt());
+        ps.setString(18, t.getDiscType());
+        ps.setDouble(19, t.getAmt());
+        ps.setString(20, t.getDb());
+        ps.setString(21, t.getCurrency());
+        ps.setObject(22, t.getEmployeeId());
+        ps.setObject(23, FuelDates.toEpochDay(t.getTranDate()));
+        ps.setString(24, FuelDedupFilter.key(t));
+        ps.setObject(25, t.getImportBatchId() > 0 ? t.getImportBatchId() : null);
     }
 
     private FuelTransaction mapRow(ResultSet rs) throws SQLException {
-        return new FuelTransaction(
+        FuelTransaction t = new FuelTransaction(
                 rs.getInt("id"),
                 rs.getString("card_number"),
                 rs.getString("tran_date"),
@@ -253,5 +360,40 @@ public class FuelTransactionDAO {
                 rs.getString("currency"),
                 rs.getInt("employee_id")
         );
+        t.setImportBatchId(rs.getInt("import_batch_id"));
+        return t;
+    }
+
+    /**
+     * Notified after each JDBC batch of a bulk insert, before it is committed.
+     */
+    @FunctionalInterface
+    public interface BatchListener {
+        void batchWritten(int inserted, int skipped);
+    }
+
+    /**
+     * Runs inside a bulk insert's transaction just before each commit, so that bookkeeping such
+     * as an import checkpoint is committed together with the rows it describes.
+     */
+    @FunctionalInterface
+    public interface CommitHook {
+        void beforeCommit(Connection conn, boolean last) throws SQLException;
+    }
+
+    /**
+     * Outcome of a bulk insert: rows written and rows skipped as duplicates.
+     */
+    public static class BulkInsertResult {
+        private final int inserted;
+        private final int skipped;
+
+        public BulkInsertResult(int inserted, int skipped) {
+            this.inserted = inserted;
+            this.skipped = skipped;
+        }
+
+        public int getInserted() { return inserted; }
+        public int getSkipped() { return skipped; }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package com.company.payroll.fuel;
+
+/**
+ * One fuel import, as listed for rolling back.
+ */
+public class ImportBatch {
+    private final int id;
+    private final String fileName;
+    private final String startedAt;
+    private final int rowCount;
+    private final String rolledBackAt;
+
+    public ImportBatch(int id, String fileName, String startedAt, int rowCount, String rolledBackAt) {
+        this.id = id;
+        this.fileName = fileName;
+        this.startedAt = startedAt;
+        this.rowCount = rowCount;
+        this.rolledBackAt = rolledBackAt;
+    }
+
+    public int getId() { return id; }
+    public String getFileName() { return fileName; }
+    public String getStartedAt() { return startedAt; }
+    public int getRowCount() { return rowCount; }
+    public String getRolledBackAt() { return rolledBackAt; }
+    public boolean isRolledBack() { return rolledBackAt != null; }
+
+    public String getStatus() {
+        return isRolledBack() ? "Rolled back " + rolledBackAt : "Imported";
+    }
+}
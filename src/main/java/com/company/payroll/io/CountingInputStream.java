@@ -0,0 +1,47 @@
+package com.company.payroll.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read through it, for progress reporting on streams whose position is not
+ * otherwise visible (a compressed file underneath a decompressor, a zip entry).
+ */
+public class CountingInputStream extends FilterInputStream {
+    private volatile long count = 0; // read by progress listeners on other threads
+
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) count++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) count += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false; // a reset would make the count wrong
+    }
+}
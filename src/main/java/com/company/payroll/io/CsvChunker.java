@@ -0,0 +1,115 @@
+package com.company.payroll.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a memory-mapped CSV file into record-aligned chunks that can be parsed independently.
+ *
+ * Chunk boundaries are found with one sequential pass over the mapped bytes that tracks only
+ * whether it is inside a quoted field, by the same rules as CsvReader: a quote opens a quoted
+ * field only as the first byte of a field, so a quote mid-field (12" hose) is a literal, and
+ * inside a quoted field a doubled quote is an escaped quote. A line break outside quotes ends a
+ * record. The pass is a plain byte scan, far cheaper than parsing, which is what gets spread
+ * across threads. Each chunk is mapped on its own, so files larger than 2 GB are fine.
+ */
+public final class CsvChunker {
+    private static final long SCAN_WINDOW = 64L * 1024 * 1024;
+
+    // Scan states, mirroring CsvReader.readField
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTED_AFTER_QUOTE = 3; // a quote inside a quoted field: escape or close
+
+    private CsvChunker() {}
+
+    /**
+     * A byte range [start, end) of the file holding whole records.
+     */
+    public static final class Chunk {
+        private final long start;
+        private final long end;
+
+        Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() { return start; }
+        public long getEnd() { return end; }
+        public long length() { return end - start; }
+    }
+
+    /**
+     * Splits bytes [from, channel.size()) into chunks of roughly targetSize bytes, each ending
+     * just after a record's line break (or at end of file).
+     */
+    public static List<Chunk> split(FileChannel channel, long from, long targetSize) throws IOException {
+        long size = channel.size();
+        List<Chunk> chunks = new ArrayList<>();
+        long chunkStart = from;
+        long nextSplit = from + targetSize;
+        int state = FIELD_START;
+        for (long windowStart = from; windowStart < size; windowStart += SCAN_WINDOW) {
+            long windowLen = Math.min(SCAN_WINDOW, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLen);
+            for (int i = 0; i < windowLen; i++) {
+                byte b = window.get(i);
+                if (state == QUOTED) {
+                    if (b == '"') state = QUOTED_AFTER_QUOTE;
+                    continue;
+                }
+                if (state == QUOTED_AFTER_QUOTE && b == '"') { // "" is an escaped quote
+                    state = QUOTED;
+                    continue;
+                }
+                if (state == FIELD_START && b == '"') {
+                    state = QUOTED;
+                    continue;
+                }
+                // Outside quotes (after a closing quote, the rest of the field is read as-is)
+                if (b == ',' || b == '\r') {
+                    state = FIELD_START;
+                } else if (b != '\n') {
+                    state = UNQUOTED;
+                } else {
+                    state = FIELD_START;
+                    long recordEnd = windowStart + i + 1;
+                    if (recordEnd >= nextSplit) {
+                        chunks.add(new Chunk(chunkStart, recordEnd));
+                        chunkStart = recordEnd;
+                        nextSplit = recordEnd + targetSize;
+                    }
+                }
+            }
+        }
+        if (chunkStart < size) chunks.add(new Chunk(chunkStart, size));
+        return chunks;
+    }
+
+    /**
+     * A CsvReader over one chunk, reading straight from the mapped pages.
+     */
+    public static CsvReader open(FileChannel channel, Chunk chunk) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.length());
+        return new CsvReader(new InputStream() {
+            @Override
+            public int read() {
+                return mapped.hasRemaining() ? mapped.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!mapped.hasRemaining()) return -1;
+                int n = Math.min(len, mapped.remaining());
+                mapped.get(b, off, n);
+                return n;
+            }
+        }, chunk.start, -1);
+    }
+}
@@ -0,0 +1,162 @@
+package com.company.payroll.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 CSV reader for UTF-8 input.
+ *
+ * Parses straight from a byte buffer, one row at a time, so memory use depends on the longest
+ * row rather than the file size. Handles quoted fields with embedded commas, doubled quotes and
+ * line breaks, CRLF or LF line endings, and a leading UTF-8 byte order mark. Blank lines are
+ * skipped. Because the structural characters are all ASCII, multi-byte UTF-8 sequences pass
+ * through untouched and are only decoded when a field is complete.
+ */
+public class CsvReader implements RowReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+    private long bufferStart = 0; // byte offset of buf[0] in the input
+    private final long totalBytes;
+    private boolean eof = false;
+
+    private byte[] field = new byte[256];
+    private int fieldLen = 0;
+    private final List<String> row = new ArrayList<>();
+    private long rowNumber = 0;
+
+    public CsvReader(InputStream in) throws IOException {
+        this(in, 0, -1);
+    }
+
+    /**
+     * Reads from an input stream that is already positioned at startOffset bytes into the file,
+     * so that getBytePosition() reports absolute offsets. A BOM is only recognised at offset 0.
+     * totalBytes is the file length, used for getProgress(); pass -1 if unknown.
+     */
+    public CsvReader(InputStream in, long startOffset, long totalBytes) throws IOException {
+        this.in = in;
+        this.bufferStart = startOffset;
+        this.totalBytes = totalBytes;
+        if (startOffset == 0 && fill() && limit >= 3
+                && (buf[0] & 0xFF) == 0xEF && (buf[1] & 0xFF) == 0xBB && (buf[2] & 0xFF) == 0xBF) {
+            pos = 3;
+        }
+    }
+
+    @Override
+    public String[] readRow() throws IOException {
+        row.clear();
+        while (true) {
+            if (pos >= limit && !fill()) {
+                return null;
+            }
+            byte b = buf[pos];
+            if (b == '\n' || b == '\r') {
+                pos++; // blank line
+                continue;
+            }
+            break;
+        }
+        while (true) {
+            boolean endOfRow = readField();
+            row.add(new String(field, 0, fieldLen, StandardCharsets.UTF_8));
+            if (endOfRow) break;
+        }
+        rowNumber++;
+        return row.toArray(new String[0]);
+    }
+
+    /**
+     * Number of rows returned so far (including a header row, if the caller read one).
+     */
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    /**
+     * Byte offset just past the last row returned. Reopening the file at this offset continues
+     * with the following row.
+     */
+    public long getBytePosition() {
+        return bufferStart + pos;
+    }
+
+    @Override
+    public double getProgress() {
+        return totalBytes > 0 ? Math.min(1.0, (double) getBytePosition() / totalBytes) : -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Reads one field into field/fieldLen; returns true if it ended the row (newline or EOF)
+    private boolean readField() throws IOException {
+        fieldLen = 0;
+        if (pos >= limit && !fill()) return true;
+        if (buf[pos] == '"') {
+            pos++;
+            while (true) {
+                if (pos >= limit && !fill()) return true; // unterminated quote: take what we have
+                byte b = buf[pos++];
+                if (b == '"') {
+                    if (pos >= limit && !fill()) return true;
+                    if (buf[pos] == '"') {
+                        append(b);
+                        pos++;
+                    } else {
+                        break;
+                    }
+                } else {
+                    append(b);
+                }
+            }
+            // After the closing quote: anything up to the delimiter is kept, as most readers do
+        }
+        while (true) {
+            if (pos >= limit && !fill()) return true;
+            byte b = buf[pos++];
+            if (b == ',') return false;
+            if (b == '\n') return true;
+            if (b == '\r') {
+                if ((pos < limit || fill()) && buf[pos] == '\n') pos++;
+                return true;
+            }
+            append(b);
+        }
+    }
+
+    private void append(byte b) {
+        if (fieldLen == field.length) {
+            byte[] bigger = new byte[field.length * 2];
+            System.arraycopy(field, 0, bigger, 0, fieldLen);
+            field = bigger;
+        }
+        field[fieldLen++] = b;
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) return false;
+        bufferStart += limit;
+        pos = 0;
+        limit = 0;
+        int n;
+        while ((n = in.read(buf, 0, buf.length)) == 0) {
+            // keep reading until data or EOF
+        }
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+}
@@ -0,0 +1,59 @@
+package com.company.payroll.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A source of tabular rows (CSV, XLSX sheet), read one row at a time.
+ */
+public interface RowReader extends Closeable {
+
+    /**
+     * Returns the next row as cell texts, or null at end of input.
+     */
+    String[] readRow() throws IOException;
+
+    /**
+     * Fraction of the input consumed so far (0..1), or -1 if unknown.
+     */
+    default double getProgress() {
+        return -1;
+    }
+
+    /**
+     * Remaining rows as a lazy stream. IO errors surface as UncheckedIOException.
+     */
+    default Stream<String[]> rows() {
+        Iterator<String[]> it = new Iterator<>() {
+            private String[] next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = readRow();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public String[] next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                String[] r = next;
+                next = null;
+                return r;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
@@ -0,0 +1,393 @@
+package com.company.payroll.io;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Streaming reader for the first worksheet of an .xlsx workbook.
+ *
+ * Uses java.util.zip and StAX only: the sheet XML is pulled one row at a time, so heap use is
+ * bounded by the shared-string table (which Excel deduplicates) rather than the number of rows.
+ * Cells are returned as text: shared and inline strings as-is, numbers in plain notation, and
+ * numbers with a date or time format as ISO dates ("2024-03-05", "2024-03-05 14:20:00") or times.
+ * Missing cells in a row are returned as "".
+ */
+public class XlsxReader implements RowReader {
+    private static final XMLInputFactory XML = XMLInputFactory.newFactory();
+
+    static {
+        XML.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final Parts parts;
+    private final CountingInputStream sheetStream;
+    private final long sheetSize;
+    private final XMLStreamReader sheet;
+    private final List<String> sharedStrings;
+    private final boolean[] dateStyles;
+    private final List<String> row = new ArrayList<>();
+
+    public XlsxReader(File file) throws IOException {
+        this(new FileParts(new ZipFile(file)));
+    }
+
+    /**
+     * Reads a workbook stored as an entry of a .zip archive, without extracting it to memory or
+     * disk. The parts of a workbook are needed out of order, so the entry is decompressed again
+     * for each of the few parts read. The archive stays open; closing this reader leaves it open.
+     */
+    public XlsxReader(ZipFile archive, ZipEntry workbook) throws IOException {
+        this(new EntryParts(archive, workbook));
+    }
+
+    private XlsxReader(Parts parts) throws IOException {
+        this.parts = parts;
+        try {
+            sharedStrings = readSharedStrings();
+            dateStyles = readDateStyles();
+            String sheetPath = firstSheetPath();
+            InputStream in = parts.open(sheetPath);
+            if (in == null) throw new IOException("Workbook has no worksheet");
+            sheetSize = parts.size(sheetPath);
+            sheetStream = new CountingInputStream(in);
+            sheet = XML.createXMLStreamReader(sheetStream);
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            parts.close();
+            throw e instanceof IOException ? (IOException) e : new IOException("Invalid .xlsx file: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String[] readRow() throws IOException {
+        try {
+            while (sheet.hasNext()) {
+                if (sheet.next() == XMLStreamConstants.START_ELEMENT && "row".equals(sheet.getLocalName())) {
+                    readCells();
+                    if (!row.isEmpty()) return row.toArray(new String[0]);
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid worksheet XML: " + e.getMessage(), e);
+        }
+    }
+
+    // Based on uncompressed sheet bytes handed to the XML parser, which reads slightly ahead
+    @Override
+    public double getProgress() {
+        return sheetSize > 0 ? Math.min(1.0, (double) sheetStream.getCount() / sheetSize) : -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sheet.close();
+        } catch (XMLStreamException ignore) {
+            // the underlying stream is closed below either way
+        }
+        sheetStream.close();
+        parts.close();
+    }
+
+    // Reads the current <row> into row, placing each cell at the column given by its reference
+    private void readCells() throws XMLStreamException {
+        row.clear();
+        int nextCol = 0;
+        while (sheet.hasNext()) {
+            int event = sheet.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "row".equals(sheet.getLocalName())) break;
+            if (event != XMLStreamConstants.START_ELEMENT || !"c".equals(sheet.getLocalName())) continue;
+
+            String ref = sheet.getAttributeValue(null, "r");
+            String type = sheet.getAttributeValue(null, "t");
+            String style = sheet.getAttributeValue(null, "s");
+            int col = ref != null ? columnIndex(ref) : nextCol;
+            String value = readCellValue(type, style);
+            while (row.size() < col) row.add("");
+            if (row.size() == col) row.add(value);
+            else row.set(col, value);
+            nextCol = col + 1;
+        }
+    }
+
+    // Positioned on <c>; consumes up to and including </c>
+    private String readCellValue(String type, String style) throws XMLStreamException {
+        String raw = null;
+        StringBuilder inline = null;
+        while (sheet.hasNext()) {
+            int event = sheet.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "c".equals(sheet.getLocalName())) break;
+            if (event != XMLStreamConstants.START_ELEMENT) continue;
+            String name = sheet.getLocalName();
+            if ("v".equals(name)) {
+                raw = sheet.getElementText();
+            } else if ("t".equals(name)) { // inline string text (possibly in several runs)
+                if (inline == null) inline = new StringBuilder();
+                inline.append(sheet.getElementText());
+            }
+        }
+        if (inline != null) return inline.toString();
+        if (raw == null) return "";
+        if ("s".equals(type)) {
+            int idx = Integer.parseInt(raw.trim());
+            return idx >= 0 && idx < sharedStrings.size() ? sharedStrings.get(idx) : "";
+        }
+        if ("b".equals(type)) return "1".equals(raw) ? "TRUE" : "FALSE";
+        if (type == null || "n".equals(type)) return formatNumber(raw, style);
+        return raw; // str (formula result), e (error)
+    }
+
+    private String formatNumber(String raw, String style) {
+        int styleIdx = style != null ? Integer.parseInt(style) : 0;
+        if (styleIdx >= 0 && styleIdx < dateStyles.length && dateStyles[styleIdx]) {
+            return formatDate(Double.parseDouble(raw));
+        }
+        if (raw.indexOf('E') >= 0 || raw.indexOf('e') >= 0) {
+            return new BigDecimal(raw).stripTrailingZeros().toPlainString();
+        }
+        return raw.endsWith(".0") ? raw.substring(0, raw.length() - 2) : raw;
+    }
+
+    // Excel serial date (1900 date system, days since 1899-12-30); fraction is the time of day
+    static String formatDate(double serial) {
+        long days = (long) Math.floor(serial);
+        long seconds = Math.round((serial - days) * 86_400);
+        if (seconds == 86_400) {
+            days++;
+            seconds = 0;
+        }
+        LocalTime time = LocalTime.ofSecondOfDay(seconds);
+        if (days == 0) return time.toString();
+        LocalDate date = LocalDate.of(1899, 12, 30).plusDays(days);
+        return seconds == 0 ? date.toString() : date + " " + time;
+    }
+
+    // Zero-based column index from a cell reference such as "AB12"
+    static int columnIndex(String ref) {
+        int col = 0;
+        for (int i = 0; i < ref.length(); i++) {
+            char c = ref.charAt(i);
+            if (c < 'A' || c > 'Z') break;
+            col = col * 26 + (c - 'A' + 1);
+        }
+        return col - 1;
+    }
+
+    // ---------------- Workbook parts ----------------
+
+    private String firstSheetPath() throws IOException, XMLStreamException {
+        String relId = null;
+        try (InputStream in = open("xl/workbook.xml")) {
+            if (in != null) {
+                XMLStreamReader r = XML.createXMLStreamReader(in);
+                while (r.hasNext() && relId == null) {
+                    if (r.next() == XMLStreamConstants.START_ELEMENT && "sheet".equals(r.getLocalName())) {
+                        for (int i = 0; i < r.getAttributeCount(); i++) {
+                            if ("id".equals(r.getAttributeLocalName(i))) relId = r.getAttributeValue(i);
+                        }
+                    }
+                }
+                r.close();
+            }
+        }
+        if (relId != null) {
+            try (InputStream in = open("xl/_rels/workbook.xml.rels")) {
+                if (in != null) {
+                    XMLStreamReader r = XML.createXMLStreamReader(in);
+                    while (r.hasNext()) {
+                        if (r.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(r.getLocalName())
+                                && relId.equals(r.getAttributeValue(null, "Id"))) {
+                            String target = r.getAttributeValue(null, "Target");
+                            r.close();
+                            return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+                        }
+                    }
+                    r.close();
+                }
+            }
+        }
+        return "xl/worksheets/sheet1.xml";
+    }
+
+    private List<String> readSharedStrings() throws IOException, XMLStreamException {
+        List<String> strings = new ArrayList<>();
+        try (InputStream in = open("xl/sharedStrings.xml")) {
+            if (in == null) return strings;
+            XMLStreamReader r = XML.createXMLStreamReader(in);
+            StringBuilder sb = null;
+            while (r.hasNext()) {
+                int event = r.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = r.getLocalName();
+                    if ("si".equals(name)) {
+                        sb = new StringBuilder();
+                    } else if ("rPh".equals(name)) {
+                        skipElement(r); // phonetic hints are not part of the text
+                    } else if ("t".equals(name) && sb != null) {
+                        sb.append(r.getElementText());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "si".equals(r.getLocalName()) && sb != null) {
+                    strings.add(sb.toString());
+                    sb = null;
+                }
+            }
+            r.close();
+        }
+        return strings;
+    }
+
+    // For each cell style (cellXfs entry), whether its number format is a date or time
+    private boolean[] readDateStyles() throws IOException, XMLStreamException {
+        Map<Integer, String> customFormats = new HashMap<>();
+        List<Integer> xfFormats = new ArrayList<>();
+        try (InputStream in = open("xl/styles.xml")) {
+            if (in == null) return new boolean[0];
+            XMLStreamReader r = XML.createXMLStreamReader(in);
+            boolean inCellXfs = false;
+            while (r.hasNext()) {
+                int event = r.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = r.getLocalName();
+                    if ("numFmt".equals(name)) {
+                        customFormats.put(Integer.parseInt(r.getAttributeValue(null, "numFmtId")), r.getAttributeValue(null, "formatCode"));
+                    } else if ("cellXfs".equals(name)) {
+                        inCellXfs = true;
+                    } else if ("xf".equals(name) && inCellXfs) {
+                        String id = r.getAttributeValue(null, "numFmtId");
+                        xfFormats.add(id != null ? Integer.parseInt(id) : 0);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "cellXfs".equals(r.getLocalName())) {
+                    inCellXfs = false;
+                }
+            }
+            r.close();
+        }
+        boolean[] result = new boolean[xfFormats.size()];
+        for (int i = 0; i < result.length; i++) {
+            int fmt = xfFormats.get(i);
+            result[i] = isBuiltInDateFormat(fmt) || (customFormats.containsKey(fmt) && isDateFormatCode(customFormats.get(fmt)));
+        }
+        return result;
+    }
+
+    private static boolean isBuiltInDateFormat(int id) {
+        return (id >= 14 && id <= 22) || (id >= 45 && id <= 47);
+    }
+
+    // A format is a date/time format if it uses y, m, d, h or s outside quotes and [brackets]
+    static boolean isDateFormatCode(String code) {
+        if (code == null) return false;
+        boolean quoted = false, bracket = false;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (quoted) continue;
+            else if (c == '\\') i++;
+            else if (c == '[') bracket = true;
+            else if (c == ']') bracket = false;
+            else if (!bracket && "ymdhsYMDHS".indexOf(c) >= 0) return true;
+        }
+        return false;
+    }
+
+    private static void skipElement(XMLStreamReader r) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && r.hasNext()) {
+            int event = r.next();
+            if (event == XMLStreamConstants.START_ELEMENT) depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT) depth--;
+        }
+    }
+
+    private InputStream open(String path) throws IOException {
+        return parts.open(path);
+    }
+
+    // Access to the parts (entries) of the workbook package
+    private interface Parts extends Closeable {
+        /** The part's content, or null if the workbook has no such part. */
+        InputStream open(String path) throws IOException;
+
+        /** Uncompressed size of the part, or -1 if unknown. */
+        long size(String path);
+    }
+
+    private static class FileParts implements Parts {
+        private final ZipFile zip;
+
+        FileParts(ZipFile zip) {
+            this.zip = zip;
+        }
+
+        @Override
+        public InputStream open(String path) throws IOException {
+            ZipEntry entry = zip.getEntry(path);
+            return entry != null ? zip.getInputStream(entry) : null;
+        }
+
+        @Override
+        public long size(String path) {
+            ZipEntry entry = zip.getEntry(path);
+            return entry != null ? entry.getSize() : -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+
+    // A workbook inside another archive: each part is found by streaming the workbook from the start
+    private static class EntryParts implements Parts {
+        private final ZipFile archive;
+        private final ZipEntry workbook;
+        private final Map<String, Long> sizes = new HashMap<>();
+
+        EntryParts(ZipFile archive, ZipEntry workbook) {
+            this.archive = archive;
+            this.workbook = workbook;
+        }
+
+        @Override
+        public InputStream open(String path) throws IOException {
+            ZipInputStream zin = new ZipInputStream(new BufferedInputStream(archive.getInputStream(workbook)));
+            ZipEntry entry;
+            while ((entry = zin.getNextEntry()) != null) {
+                if (entry.getName().equals(path)) {
+                    sizes.put(path, entry.getSize()); // -1 when the entry has a trailing data descriptor
+                    return zin;
+                }
+            }
+            zin.close();
+            return null;
+        }
+
+        @Override
+        public long size(String path) {
+            return sizes.getOrDefault(path, -1L);
+        }
+
+        @Override
+        public void close() {
+            // the archive belongs to the caller
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.company.payroll.loads;
 
 import com.company.payroll.employees.Employee;
 import java.time.LocalDate;
+import java.util.Locale;
 
 public class Load {
     public enum Status { BOOKED, IN_TRANSIT, DELIVERED, PAID, CANCELLED }
@@ -17,6 +18,10 @@ public class Load {
     private String notes;
     private LocalDate deliveryDate; // <-- NEW FIELD
 
+    // Trimmed lower-case copies for filtering, computed on first use and reset by the setters
+    private String loadNumberKey;
+    private String customerKey;
+
     // Optional: Attachments, Created/Modified date, etc.
 
     // UPDATED CONSTRUCTOR
@@ -46,10 +51,10 @@ public class Load {
     public void setId(int id) { this.id = id; }
 
     public String getLoadNumber() { return loadNumber; }
-    public void setLoadNumber(String loadNumber) { this.loadNumber = loadNumber; }
+    public void setLoadNumber(String loadNumber) { this.loadNumber = loadNumber; this.loadNumberKey = null; }
 
     public String getCustomer() { return customer; }
-    public void setCustomer(String customer) { this.customer = customer; }
+    public void setCustomer(String customer) { this.customer = customer; this.customerKey = null; }
 
     public String getPickUpLocation() { return pickUpLocation; }
     public void setPickUpLocation(String pickUpLocation) { this.pickUpLocation = pickUpLocation; }
@@ -72,6 +77,31 @@ public class Load {
     public LocalDate getDeliveryDate() { return deliveryDate; }
     public void setDeliveryDate(LocalDate deliveryDate) { this.deliveryDate = deliveryDate; }
 
+    /**
+     * Load number trimmed and in lower case ("" if none), for case-insensitive matching.
+     */
+    public String getLoadNumberKey() {
+        String key = loadNumberKey;
+        if (key == null) loadNumberKey = key = normalize(loadNumber);
+        return key;
+    }
+
+    /**
+     * Customer trimmed and in lower case ("" if none), for case-insensitive matching.
+     */
+    public String getCustomerKey() {
+        String key = customerKey;
+        if (key == null) customerKey = key = normalize(customer);
+        return key;
+    }
+
+    /**
+     * The form in which load numbers are compared and must be unique: trimmed, lower case.
+     */
+    public static String normalize(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+
     // ---- Needed for PayrollTab/PayrollCalculator ----
 
     /**
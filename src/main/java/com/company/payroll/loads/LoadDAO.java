@@ -1,56 +1,42 @@
 package com.company.payroll.loads;
 
+import com.company.payroll.db.DatabaseManager;
+import com.company.payroll.db.SchemaMigrator;
 import com.company.payroll.employees.Employee;
 import com.company.payroll.employees.EmployeeDAO;
 
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
 
 public class LoadDAO {
 
-    private static final String DB_URL = "jdbc:sqlite:payroll.db";
-    private final EmployeeDAO employeeDAO = new EmployeeDAO();
+    // Loads are always read together with their driver, so each query is a single round trip
+    private static final String SELECT_LOADS =
+            "SELECT l.*, " + EmployeeDAO.prefixedColumns("e", "e_") +
+            " FROM loads l LEFT JOIN employees e ON e.id = l.driver_id";
+
+    // Ids per IN (...) list, well under SQLite's limit on bound parameters
+    private static final int IN_CHUNK = 500;
 
     public LoadDAO() {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            // If delivery_date doesn't exist, add it (for upgrades)
-            conn.createStatement().execute(
-                "ALTER TABLE loads ADD COLUMN delivery_date DATE"
-            );
-        } catch (SQLException ignore) {
-            // Ignore error if column already exists
-        }
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            String sql = """
-                CREATE TABLE IF NOT EXISTS loads (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    load_number TEXT NOT NULL UNIQUE,
-                    customer TEXT,
-                    pick_up_location TEXT,
-                    drop_location TEXT,
-                    driver_id INTEGER,
-                    status TEXT,
-                    gross_amount REAL,
-                    notes TEXT,
-                    delivery_date DATE,
-                    FOREIGN KEY(driver_id) REFERENCES employees(id)
-                );
-            """;
-            conn.createStatement().execute(sql);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        // Tables and indexes are created by SchemaMigrator; only the first call touches the database
+        SchemaMigrator.migrate();
     }
 
     public List<Load> getAll() {
         List<Load> list = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            String sql = "SELECT * FROM loads";
-            ResultSet rs = conn.createStatement().executeQuery(sql);
+        try (Connection conn = DatabaseManager.getConnection()) {
+            ResultSet rs = conn.createStatement().executeQuery(SELECT_LOADS);
+            Map<Integer, Employee> drivers = new HashMap<>();
             while (rs.next()) {
-                list.add(extractLoad(rs));
+                list.add(extractLoad(rs, drivers));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -58,78 +44,170 @@ public class LoadDAO {
         return list;
     }
 
-    public int add(Load load) {
-        String sql = "INSERT INTO loads (load_number, customer, pick_up_location, drop_location, driver_id, status, gross_amount, notes, delivery_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            ps.setString(1, load.getLoadNumber());
-            ps.setString(2, load.getCustomer());
-            ps.setString(3, load.getPickUpLocation());
-            ps.setString(4, load.getDropLocation());
-            ps.setObject(5, load.getDriver() != null ? load.getDriver().getId() : null);
-            ps.setString(6, load.getStatus().name());
-            ps.setDouble(7, load.getGrossAmount());
-            ps.setString(8, load.getNotes());
-            if (load.getDeliveryDate() != null)
-                ps.setDate(9, java.sql.Date.valueOf(load.getDeliveryDate()));
-            else
-                ps.setNull(9, Types.DATE);
-            ps.executeUpdate();
-            ResultSet keys = ps.getGeneratedKeys();
-            if (keys.next()) return keys.getInt(1);
+    /**
+     * Inserts the load and returns it with its new id set, or null if the insert failed.
+     */
+    public Load add(Load load) {
+        String sql = "INSERT INTO loads (load_number, customer, pick_up_location, drop_location, driver_id, status, gross_amount, notes, delivery_date, load_number_norm) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            beginImmediate(conn);
+            try {
+                checkUniqueLoadNumber(conn, load.getLoadNumber(), -1);
+                PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                bindFields(ps, load);
+                ps.executeUpdate();
+                ResultSet keys = ps.getGeneratedKeys();
+                Integer id = keys.next() ? keys.getInt(1) : null;
+                commit(conn);
+                if (id != null) {
+                    load.setId(id);
+                    return load;
+                }
+            } catch (SQLException | RuntimeException e) {
+                rollback(conn);
+                throw e;
+            }
         } catch (SQLException e) {
             if (e.getMessage() != null && e.getMessage().contains("UNIQUE constraint failed: loads.load_number")) {
                 throw new RuntimeException("Duplicate Load # not allowed.");
             }
             e.printStackTrace();
         }
-        return -1;
+        return null;
     }
 
-    public void update(Load load) {
-        String sql = "UPDATE loads SET load_number=?, customer=?, pick_up_location=?, drop_location=?, driver_id=?, status=?, gross_amount=?, notes=?, delivery_date=? WHERE id=?";
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setString(1, load.getLoadNumber());
-            ps.setString(2, load.getCustomer());
-            ps.setString(3, load.getPickUpLocation());
-            ps.setString(4, load.getDropLocation());
-            ps.setObject(5, load.getDriver() != null ? load.getDriver().getId() : null);
-            ps.setString(6, load.getStatus().name());
-            ps.setDouble(7, load.getGrossAmount());
-            ps.setString(8, load.getNotes());
-            if (load.getDeliveryDate() != null)
-                ps.setDate(9, java.sql.Date.valueOf(load.getDeliveryDate()));
-            else
-                ps.setNull(9, Types.DATE);
-            ps.setInt(10, load.getId());
-            ps.executeUpdate();
+    /**
+     * Saves every column of the load and returns it, or null if no row has its id.
+     */
+    public Load update(Load load) {
+        String sql = "UPDATE loads SET load_number=?, customer=?, pick_up_location=?, drop_location=?, driver_id=?, status=?, gross_amount=?, notes=?, delivery_date=?, load_number_norm=? WHERE id=?";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            beginImmediate(conn);
+            try {
+                checkUniqueLoadNumber(conn, load.getLoadNumber(), load.getId());
+                PreparedStatement ps = conn.prepareStatement(sql);
+                bindFields(ps, load);
+                ps.setInt(11, load.getId());
+                int updated = ps.executeUpdate();
+                commit(conn);
+                if (updated > 0) return load;
+            } catch (SQLException | RuntimeException e) {
+                rollback(conn);
+                throw e;
+            }
         } catch (SQLException e) {
             if (e.getMessage() != null && e.getMessage().contains("UNIQUE constraint failed: loads.load_number")) {
                 throw new RuntimeException("Duplicate Load # not allowed.");
             }
             e.printStackTrace();
         }
+        return null;
     }
 
-    public void delete(int id) {
+    // Takes SQLite's write lock up front (a plain BEGIN would only take it at the first write), so
+    // concurrent saves run their duplicate check and write one after the other
+    private static void beginImmediate(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("BEGIN IMMEDIATE");
+        }
+    }
+
+    private static void commit(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("COMMIT");
+        }
+    }
+
+    // Undoes a transaction started by beginImmediate. Quiet, so the caller's own error is reported.
+    private static void rollback(Connection conn) {
+        try (Statement st = conn.createStatement()) {
+            st.execute("ROLLBACK");
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Columns 1-10 of INSERT and UPDATE
+    private static void bindFields(PreparedStatement ps, Load load) throws SQLException {
+        ps.setString(1, load.getLoadNumber());
+        ps.setString(2, load.getCustomer());
+        ps.setString(3, load.getPickUpLocation());
+        ps.setString(4, load.getDropLocation());
+        ps.setObject(5, load.getDriver() != null ? load.getDriver().getId() : null);
+        ps.setString(6, load.getStatus().name());
+        ps.setDouble(7, load.getGrossAmount());
+        ps.setString(8, load.getNotes());
+        if (load.getDeliveryDate() != null)
+            ps.setDate(9, java.sql.Date.valueOf(load.getDeliveryDate()));
+        else
+            ps.setNull(9, Types.DATE);
+        ps.setString(10, Load.normalize(load.getLoadNumber()));
+    }
+
+    // Load numbers are unique ignoring case and surrounding spaces; the UNIQUE constraint on
+    // load_number only catches exact repeats. Looked up through idx_loads_number_norm, inside the
+    // caller's BEGIN IMMEDIATE transaction so no other save can slip in between check and write.
+    private static void checkUniqueLoadNumber(Connection conn, String loadNumber, int excludeId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM loads WHERE load_number_norm = ? AND id <> ? LIMIT 1")) {
+            ps.setString(1, Load.normalize(loadNumber));
+            ps.setInt(2, excludeId);
+            if (ps.executeQuery().next()) throw new RuntimeException("Duplicate Load # not allowed.");
+        }
+    }
+
+    /**
+     * Deletes the load; returns false if there was no such load or the delete failed.
+     */
+    public boolean delete(int id) {
         String sql = "DELETE FROM loads WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setInt(1, id);
-            ps.executeUpdate();
+            return ps.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return false;
+    }
+
+    /**
+     * Sets the status of all the given loads in one transaction, with one UPDATE ... WHERE id IN
+     * per chunk of ids. Either every load is updated or none is. Returns the number updated.
+     */
+    public int updateStatus(Collection<Integer> ids, Load.Status status) {
+        if (ids.isEmpty()) return 0;
+        List<Integer> list = new ArrayList<>(ids);
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int updated = 0;
+                for (int from = 0; from < list.size(); from += IN_CHUNK) {
+                    List<Integer> chunk = list.subList(from, Math.min(from + IN_CHUNK, list.size()));
+                    String sql = "UPDATE loads SET status = ? WHERE id IN (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                        ps.setString(1, status.name());
+                        for (int i = 0; i < chunk.size(); i++) ps.setInt(i + 2, chunk.get(i));
+                        updated += ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+                return updated;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Bulk status update failed: " + e.getMessage(), e);
+        }
     }
 
     public Load getById(int id) {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            String sql = "SELECT * FROM loads WHERE id = ?";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            String sql = SELECT_LOADS + " WHERE l.id = ?";
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setInt(1, id);
             ResultSet rs = ps.executeQuery();
-            if (rs.next()) return extractLoad(rs);
+            if (rs.next()) return extractLoad(rs, new HashMap<>());
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -138,13 +216,14 @@ public class LoadDAO {
 
     public List<Load> getByStatus(Load.Status status) {
         List<Load> list = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            String sql = "SELECT * FROM loads WHERE status = ?";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            String sql = SELECT_LOADS + " WHERE l.status = ?";
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setString(1, status.name());
             ResultSet rs = ps.executeQuery();
+            Map<Integer, Employee> drivers = new HashMap<>();
             while (rs.next()) {
-                list.add(extractLoad(rs));
+                list.add(extractLoad(rs, drivers));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -154,13 +233,14 @@ public class LoadDAO {
 
     public List<Load> getByDriver(int driverId) {
         List<Load> list = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            String sql = "SELECT * FROM loads WHERE driver_id = ?";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            String sql = SELECT_LOADS + " WHERE l.driver_id = ?";
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setInt(1, driverId);
             ResultSet rs = ps.executeQuery();
+            Map<Integer, Employee> drivers = new HashMap<>();
             while (rs.next()) {
-                list.add(extractLoad(rs));
+                list.add(extractLoad(rs, drivers));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -170,14 +250,15 @@ public class LoadDAO {
 
     public List<Load> getByGrossAmountRange(double min, double max) {
         List<Load> list = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            String sql = "SELECT * FROM loads WHERE gross_amount >= ? AND gross_amount <= ?";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            String sql = SELECT_LOADS + " WHERE l.gross_amount >= ? AND l.gross_amount <= ?";
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setDouble(1, min);
             ps.setDouble(2, max);
             ResultSet rs = ps.executeQuery();
+            Map<Integer, Employee> drivers = new HashMap<>();
             while (rs.next()) {
-                list.add(extractLoad(rs));
+                list.add(extractLoad(rs, drivers));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -185,33 +266,66 @@ public class LoadDAO {
         return list;
     }
 
+    /**
+     * Loads matching all the given criteria (null or blank ones are ignored). Load number and
+     * customer are matched through the full-text index by whole words, the last word as a prefix:
+     * "acm" finds "Acme Foods" and "L-12" finds "L-1234". This is not substring matching:
+     * "234" does not find "L-1234", nor "foods" "SeaFoods". Text without any letters or digits
+     * (e.g. "-") matches nothing.
+     */
     public List<Load> search(String loadNum, String customer, Integer driverId, Load.Status status) {
         List<Load> list = new ArrayList<>();
-        StringBuilder sql = new StringBuilder("SELECT * FROM loads WHERE 1=1");
+        StringBuilder sql = new StringBuilder(SELECT_LOADS + " WHERE 1=1");
         List<Object> params = new ArrayList<>();
-        if (loadNum != null && !loadNum.isBlank()) {
-            sql.append(" AND lower(load_number) LIKE ?");
-            params.add("%" + loadNum.toLowerCase() + "%");
-        }
-        if (customer != null && !customer.isBlank()) {
-            sql.append(" AND lower(customer) LIKE ?");
-            params.add("%" + customer.toLowerCase() + "%");
+        List<String> text = new ArrayList<>();
+        if (loadNum != null && !loadNum.isBlank()) text.add(ftsQuery("load_number", loadNum));
+        if (customer != null && !customer.isBlank()) text.add(ftsQuery("customer", customer));
+        if (text.contains(null)) return list; // no words to look up, so nothing can match
+        if (!text.isEmpty()) {
+            sql.append(" AND l.id IN (SELECT rowid FROM loads_fts WHERE loads_fts MATCH ?)");
+            params.add(String.join(" AND ", text));
         }
         if (driverId != null) {
-            sql.append(" AND driver_id = ?");
+            sql.append(" AND l.driver_id = ?");
             params.add(driverId);
         }
         if (status != null) {
-            sql.append(" AND status = ?");
+            sql.append(" AND l.status = ?");
             params.add(status.name());
         }
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+        try (Connection conn = DatabaseManager.getConnection()) {
             PreparedStatement ps = conn.prepareStatement(sql.toString());
             for (int i = 0; i < params.size(); ++i)
                 ps.setObject(i + 1, params.get(i));
             ResultSet rs = ps.executeQuery();
+            Map<Integer, Employee> drivers = new HashMap<>();
+            while (rs.next()) {
+                list.add(extractLoad(rs, drivers));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    /**
+     * Loads whose load number, customer, pick-up or drop location or notes contain every word of
+     * text (the last one as a prefix), best matches first, at most limit of them.
+     */
+    public List<Load> searchText(String text, int limit) {
+        List<Load> list = new ArrayList<>();
+        String query = ftsQuery(null, text);
+        if (query == null) return list;
+        String sql = SELECT_LOADS + " JOIN loads_fts ON loads_fts.rowid = l.id"
+                + " WHERE loads_fts MATCH ? ORDER BY loads_fts.rank LIMIT ?";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            ps.setString(1, query);
+            ps.setInt(2, limit);
+            ResultSet rs = ps.executeQuery();
+            Map<Integer, Employee> drivers = new HashMap<>();
             while (rs.next()) {
-                list.add(extractLoad(rs));
+                list.add(extractLoad(rs, drivers));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -219,21 +333,59 @@ public class LoadDAO {
         return list;
     }
 
+    // User text as an FTS5 query with every word required, optionally limited to one column.
+    // Only the last word is a prefix term (the one still being typed): short prefixes such as
+    // the "l" of "L-1234" would otherwise expand to most of the index. Null if there are no words.
+    static String ftsQuery(String column, String text) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append('"').append(word).append('"');
+        }
+        if (sb.length() == 0) return null;
+        sb.append('*');
+        return column != null ? "{" + column + "} : (" + sb + ")" : sb.toString();
+    }
+
     /**
      * Returns all loads for a driver where the delivery date is within the range (inclusive).
      * Only loads with non-null deliveryDate are returned.
      */
     public List<Load> getByDriverAndDateRange(int driverId, LocalDate start, LocalDate end) {
         List<Load> list = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            String sql = "SELECT * FROM loads WHERE driver_id = ? AND delivery_date IS NOT NULL AND delivery_date >= ? AND delivery_date <= ?";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            String sql = SELECT_LOADS + " WHERE l.driver_id = ? AND l.delivery_date IS NOT NULL AND l.delivery_date >= ? AND l.delivery_date <= ?";
             PreparedStatement ps = conn.prepareStatement(sql);
             ps.setInt(1, driverId);
             ps.setDate(2, Date.valueOf(start));
             ps.setDate(3, Date.valueOf(end));
             ResultSet rs = ps.executeQuery();
+            Map<Integer, Employee> drivers = new HashMap<>();
+            while (rs.next()) {
+                list.add(extractLoad(rs, drivers));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    /**
+     * Returns all loads (any driver) whose delivery date is within the range (inclusive).
+     * Used by payroll to fetch a whole period in one query.
+     */
+    public List<Load> getByDateRange(LocalDate start, LocalDate end) {
+        List<Load> list = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            String sql = SELECT_LOADS + " WHERE l.driver_id IS NOT NULL AND l.delivery_date IS NOT NULL AND l.delivery_date >= ? AND l.delivery_date <= ?";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            ps.setDate(1, Date.valueOf(start));
+            ps.setDate(2, Date.valueOf(end));
+            ResultSet rs = ps.executeQuery();
+            Map<Integer, Employee> drivers = new HashMap<>();
             while (rs.next()) {
-                list.add(extractLoad(rs));
+                list.add(extractLoad(rs, drivers));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -241,15 +393,23 @@ public class LoadDAO {
         return list;
     }
 
-    // Utility: extract a Load from the current ResultSet row
-    private Load extractLoad(ResultSet rs) throws SQLException {
+    // Utility: extract a Load from the current ResultSet row.
+    // drivers is a per-query identity map so each distinct Employee is built once per result set.
+    private Load extractLoad(ResultSet rs, Map<Integer, Employee> drivers) throws SQLException {
         int id = rs.getInt("id");
         String loadNumber = rs.getString("load_number");
         String customer = rs.getString("customer");
         String pickUp = rs.getString("pick_up_location");
         String drop = rs.getString("drop_location");
-        int driverId = rs.getInt("driver_id");
-        Employee driver = employeeDAO.getById(driverId);
+        Employee driver = null;
+        int driverId = rs.getInt("e_id");
+        if (!rs.wasNull()) {
+            driver = drivers.get(driverId);
+            if (driver == null) {
+                driver = EmployeeDAO.mapRow(rs, "e_");
+                drivers.put(driverId, driver);
+            }
+        }
         Load.Status status = Load.Status.valueOf(rs.getString("status"));
         double gross = rs.getDouble("gross_amount");
         String notes = rs.getString("notes");
@@ -0,0 +1,65 @@
+package com.company.payroll.loads;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hash index of the normalized load numbers in a list of loads, kept in sync by listening to the
+ * list, so a duplicate check is a map lookup instead of a scan.
+ *
+ * Entries are tracked by load id: a load edited in place and then replaced in the list moves
+ * from its old number to its new one. Numbers are counted rather than mapped to a single id
+ * because databases from before numbers were compared case-insensitively may hold "l1" and "L1".
+ */
+class LoadNumberIndex implements ListChangeListener<Load> {
+    private final Map<Integer, String> numberById = new HashMap<>();
+    private final Map<String, Integer> countByNumber = new HashMap<>();
+
+    LoadNumberIndex(ObservableList<Load> loads) {
+        for (Load l : loads) add(l);
+        loads.addListener(this);
+    }
+
+    /**
+     * Whether a load other than excludeId has this number, ignoring case and surrounding spaces.
+     */
+    boolean contains(String loadNumber, int excludeId) {
+        String number = Load.normalize(loadNumber);
+        int count = countByNumber.getOrDefault(number, 0);
+        if (number.equals(numberById.get(excludeId))) count--;
+        return count > 0;
+    }
+
+    @Override
+    public void onChanged(Change<? extends Load> c) {
+        // All removals first, so a load replaced by itself (or reloaded) is re-added with its current number
+        while (c.next()) {
+            if (c.wasPermutated()) continue;
+            for (Load l : c.getRemoved()) remove(l.getId());
+        }
+        c.reset();
+        while (c.next()) {
+            if (c.wasPermutated()) continue;
+            for (Load l : c.getAddedSubList()) add(l);
+        }
+    }
+
+    private void add(Load load) {
+        String number = load.getLoadNumberKey();
+        String previous = numberById.put(load.getId(), number);
+        if (previous != null) decrement(previous);
+        countByNumber.merge(number, 1, Integer::sum);
+    }
+
+    private void remove(int id) {
+        String number = numberById.remove(id);
+        if (number != null) decrement(number);
+    }
+
+    private void decrement(String number) {
+        countByNumber.computeIfPresent(number, (k, n) -> n > 1 ? n - 1 : null);
+    }
+}
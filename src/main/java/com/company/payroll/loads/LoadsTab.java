@@ -1,8 +1,11 @@
 package com.company.payroll.loads;
 
+import com.company.payroll.db.AsyncDataAccess;
 import com.company.payroll.employees.Employee;
 import com.company.payroll.employees.EmployeeDAO;
 import com.company.payroll.employees.EmployeesTab;
+import javafx.animation.PauseTransition;
+import javafx.beans.InvalidationListener;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.*;
@@ -13,6 +16,7 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
 import javafx.stage.FileChooser;
+import javafx.util.Duration;
 
 import java.io.*;
 import java.time.LocalDate;
@@ -22,10 +26,19 @@ import java.util.stream.Collectors;
 
 public class LoadsTab extends BorderPane implements EmployeesTab.EmployeeDataChangeListener {
 
-    private final LoadDAO loadDAO = new LoadDAO();
-    private final EmployeeDAO employeeDAO = new EmployeeDAO();
+    private final LoadDAO loadDAO;
+    private final EmployeeDAO employeeDAO;
     private ObservableList<Load> allLoads = FXCollections.observableArrayList();
     private ObservableList<Employee> allDrivers = FXCollections.observableArrayList();
+    private final LoadNumberIndex loadNumbers = new LoadNumberIndex(allLoads);
+
+    // Background reloads; a newer reload replaces a pending one
+    private final AsyncDataAccess.Request<List<Load>> loadsRequest = new AsyncDataAccess.Request<>();
+    private final AsyncDataAccess.Request<List<Employee>> driversRequest = new AsyncDataAccess.Request<>();
+    private final AsyncDataAccess.Request<List<Load>> searchRequest = new AsyncDataAccess.Request<>();
+
+    private static final Duration SEARCH_DELAY = Duration.millis(250);
+    private boolean searchActive = false; // the Advanced Search tab has results to keep current
 
     private final List<StatusTab> statusTabs = new ArrayList<>();
 
@@ -33,7 +46,9 @@ public class LoadsTab extends BorderPane implements EmployeesTab.EmployeeDataCha
         BOOKED, IN_TRANSIT, DELIVERED, PAID, CANCELLED, ALL, SEARCH
     }
 
-    public LoadsTab(EmployeesTab employeesTab) {
+    public LoadsTab(EmployeesTab employeesTab, LoadDAO loadDAO, EmployeeDAO employeeDAO) {
+        this.loadDAO = loadDAO;
+        this.employeeDAO = employeeDAO;
         employeesTab.addEmployeeDataChangeListener(this);
         reloadAll();
 
@@ -73,7 +88,7 @@ public class LoadsTab extends BorderPane implements EmployeesTab.EmployeeDataCha
         Button refreshBtn = new Button("Refresh");
         Button bulkStatusBtn = new Button("Bulk Status Update");
 
-        HBox buttonBox = new HBox(10, addBtn, editBtn, deleteBtn, bulkStatusBtn, exportBtn, refreshBtn);
+        HBox buttonBox = new HBox(10, addBtn, editBtn, deleteBtn, bulkStatusBtn, exportBtn, refreshBtn, loadsRequest.newIndicator());
         buttonBox.setAlignment(Pos.CENTER_LEFT);
         buttonBox.setPadding(new Insets(10, 10, 5, 10));
 
@@ -90,9 +105,8 @@ public class LoadsTab extends BorderPane implements EmployeesTab.EmployeeDataCha
                         ButtonType.YES, ButtonType.NO);
                 confirm.setHeaderText("Confirm Delete");
                 confirm.showAndWait().ifPresent(resp -> {
-                    if (resp == ButtonType.YES) {
-                        loadDAO.delete(selected.getId());
-                        reloadAll();
+                    if (resp == ButtonType.YES && loadDAO.delete(selected.getId())) {
+                        removeLoad(selected.getId());
                     }
                 });
             }
@@ -108,11 +122,14 @@ public class LoadsTab extends BorderPane implements EmployeesTab.EmployeeDataCha
             dlg.setHeaderText("Change status for " + selected.size() + " loads");
             dlg.setContentText("New status:");
             dlg.showAndWait().ifPresent(newStatus -> {
-                for (Load l : selected) {
-                    l.setStatus(newStatus);
-                    loadDAO.update(l);
+                try {
+                    loadDAO.updateStatus(selected.stream().map(Load::getId).collect(Collectors.toList()), newStatus);
+                } catch (RuntimeException ex) {
+                    new Alert(Alert.AlertType.ERROR, ex.getMessage()).showAndWait();
+                    return;
                 }
-                reloadAll();
+                for (Load l : selected) l.setStatus(newStatus);
+                putLoads(selected);
             });
         });
 
@@ -151,6 +168,7 @@ public class LoadsTab extends BorderPane implements EmployeesTab.EmployeeDataCha
         beforeDate.setPromptText("To Date");
         Button searchBtn = new Button("Search");
         Button exportBtn = new Button("Export CSV");
+        PauseTransition searchDelay = new PauseTransition(SEARCH_DELAY);
 
         driverBox.setItems(allDrivers);
         driverBox.setCellFactory(cb -> new ListCell<Employee>() {
@@ -168,22 +186,42 @@ public class LoadsTab extends BorderPane implements EmployeesTab.EmployeeDataCha
             }
         });
 
-        HBox filters = new HBox(10, loadNumField, customerField, driverBox, statusBox, afterDate, beforeDate, searchBtn, exportBtn);
+        HBox filters = new HBox(10, loadNumField, customerField, driverBox, statusBox, afterDate, beforeDate, searchBtn, exportBtn,
+                searchRequest.newIndicator());
         filters.setAlignment(Pos.CENTER_LEFT);
         filters.setPadding(new Insets(10));
 
-        FilteredList<Load> searchFiltered = new FilteredList<>(allLoads, l -> false);
-        TableView<Load> table = makeTableView(searchFiltered);
+        ObservableList<Load> searchResults = FXCollections.observableArrayList();
+        TableView<Load> table = makeTableView(searchResults);
 
-        searchBtn.setOnAction(e -> {
-            searchFiltered.setPredicate(makeSearchPredicate(
+        // Type-ahead: filters run once input pauses for SEARCH_DELAY, on a background thread over a
+        // snapshot of allLoads. A newer search supersedes a running one, so only the last result is shown.
+        Runnable search = () -> {
+            searchDelay.stop();
+            searchActive = true;
+            Predicate<Load> predicate = makeSearchPredicate(
                     loadNumField.getText(),
                     customerField.getText(),
                     driverBox.getValue(),
                     statusBox.getValue(),
                     afterDate.getValue(),
                     beforeDate.getValue()
-            ));
+            );
+            List<Load> snapshot = new ArrayList<>(allLoads);
+            searchRequest.submit(() -> snapshot.stream().filter(predicate).collect(Collectors.toList()), searchResults::setAll);
+        };
+        searchDelay.setOnFinished(e -> search.run());
+        InvalidationListener filterChanged = obs -> searchDelay.playFromStart();
+        loadNumField.textProperty().addListener(filterChanged);
+        customerField.textProperty().addListener(filterChanged);
+        driverBox.valueProperty().addListener(filterChanged);
+        statusBox.valueProperty().addListener(filterChanged);
+        afterDate.valueProperty().addListener(filterChanged);
+        beforeDate.valueProperty().addListener(filterChanged);
+        searchBtn.setOnAction(e -> search.run());
+        // Results follow adds, edits and deletes once a search has been run
+        allLoads.addListener((ListChangeListener<Load>) c -> {
+            if (searchActive) searchDelay.playFromStart();
         });
 
         exportBtn.setOnAction(e -> exportCSV(table));
@@ -380,53 +418,79 @@ public class LoadsTab extends BorderPane implements EmployeesTab.EmployeeDataCha
                     String notes = notesField.getText().trim();
                     LocalDate deliveryDate = deliveryDatePicker.getValue();
 
-                    if (isAdd) {
-                        Load newLoad = new Load(0, loadNum, customer, pickUp, drop, driver, status, gross, notes, deliveryDate);
-                        int newId = loadDAO.add(newLoad);
-                        newLoad.setId(newId);
-                        return newLoad;
-                    } else {
-                        load.setLoadNumber(loadNum);
-                        load.setCustomer(customer);
-                        load.setPickUpLocation(pickUp);
-                        load.setDropLocation(drop);
-                        load.setDriver(driver);
-                        load.setStatus(status);
-                        load.setGrossAmount(gross);
-                        load.setNotes(notes);
-                        load.setDeliveryDate(deliveryDate);
-                        loadDAO.update(load);
-                        return load;
+                    // An edit goes to a copy: the load in allLoads only changes once the update succeeds
+                    Load edited = new Load(isAdd ? 0 : load.getId(), loadNum, customer, pickUp, drop, driver, status,
+                            gross, notes, deliveryDate);
+                    Load saved = isAdd ? loadDAO.add(edited) : loadDAO.update(edited);
+                    if (saved == null) {
+                        new Alert(Alert.AlertType.ERROR, "Load \"" + loadNum + "\" could not be saved.").showAndWait();
                     }
+                    return saved;
                 } catch (Exception ex) {
                     ex.printStackTrace();
+                    new Alert(Alert.AlertType.ERROR, ex.getMessage()).showAndWait();
                     return null;
                 }
             }
             return null;
         });
 
-        dialog.showAndWait().ifPresent(result -> reloadAll());
+        dialog.showAndWait().ifPresent(this::putLoad);
     }
 
     private boolean checkDuplicateLoadNumber(String loadNum, int excludeId) {
-        String norm = loadNum.trim().toLowerCase(Locale.ROOT);
-        for (Load l : allLoads) {
-            if (l.getId() != excludeId && l.getLoadNumber() != null &&
-                l.getLoadNumber().trim().toLowerCase(Locale.ROOT).equals(norm)) {
-                return true;
-            }
-        }
-        return false;
+        return loadNumbers.contains(loadNum, excludeId);
     }
 
+    // Full reload, for the Refresh button and startup. setAll re-filters every status tab.
     private void reloadAll() {
-        allLoads.setAll(loadDAO.getAll());
-        allDrivers.setAll(employeeDAO.getAll());
-        for (StatusTab tab : statusTabs) {
-            if (tab.filteredList != null)
-                tab.filteredList.setPredicate(tab.filteredList.getPredicate());
+        reloadLoads();
+        driversRequest.submit(employeeDAO::getAll, allDrivers::setAll);
+    }
+
+    private void reloadLoads() {
+        loadsRequest.submit(loadDAO::getAll, allLoads::setAll);
+    }
+
+    // Called after each change below, which is already saved: a reload still running may have read
+    // the rows before it, and its setAll would undo the change. Resubmitting supersedes that reload
+    // with one that reads the saved rows.
+    private void restartPendingReload() {
+        if (loadsRequest.isRunning()) reloadLoads();
+    }
+
+    // After a single add or edit: replaces (or appends) just that load in allLoads. The status
+    // tabs' FilteredLists see a one-element change, so only that load is re-tested and moved.
+    private void putLoad(Load load) {
+        int i = indexOfLoad(load.getId());
+        if (i >= 0) allLoads.set(i, load);
+        else allLoads.add(load);
+        restartPendingReload();
+    }
+
+    // Replaces several loads in a single pass over allLoads
+    private void putLoads(Collection<Load> loads) {
+        Map<Integer, Load> byId = new HashMap<>();
+        for (Load l : loads) byId.put(l.getId(), l);
+        for (int i = 0; i < allLoads.size() && !byId.isEmpty(); i++) {
+            Load l = byId.remove(allLoads.get(i).getId());
+            if (l != null) allLoads.set(i, l);
+        }
+        allLoads.addAll(byId.values());
+        restartPendingReload();
+    }
+
+    private void removeLoad(int id) {
+        int i = indexOfLoad(id);
+        if (i >= 0) allLoads.remove(i);
+        restartPendingReload();
+    }
+
+    private int indexOfLoad(int id) {
+        for (int i = 0; i < allLoads.size(); i++) {
+            if (allLoads.get(i).getId() == id) return i;
         }
+        return -1;
     }
 
     private boolean isDouble(String s) {
@@ -434,16 +498,18 @@ public class LoadsTab extends BorderPane implements EmployeesTab.EmployeeDataCha
         catch (Exception e) { return false; }
     }
 
+    // Load # and customer match anywhere in the text ("234" finds "L-1234"), so they are tested here
+    // against the precomputed keys rather than through LoadDAO.search, which matches whole words
     private Predicate<Load> makeSearchPredicate(
             String loadNum, String customer, Employee driver, Load.Status status, LocalDate after, LocalDate before) {
-        String normLoadNum = loadNum == null ? "" : loadNum.trim().toLowerCase();
-        String normCustomer = customer == null ? "" : customer.trim().toLowerCase();
+        String normLoadNum = loadNum == null ? "" : loadNum.trim().toLowerCase(Locale.ROOT);
+        String normCustomer = customer == null ? "" : customer.trim().toLowerCase(Locale.ROOT);
         return l -> {
             boolean match = true;
             if (!normLoadNum.isEmpty())
-                match &= l.getLoadNumber() != null && l.getLoadNumber().toLowerCase().contains(normLoadNum);
+                match &= l.getLoadNumberKey().contains(normLoadNum);
             if (!normCustomer.isEmpty())
-                match &= l.getCustomer() != null && l.getCustomer().toLowerCase().contains(normCustomer);
+                match &= l.getCustomerKey().contains(normCustomer);
             if (driver != null)
                 match &= l.getDriver() != null && l.getDriver().getId() == driver.getId();
             if (status != null)
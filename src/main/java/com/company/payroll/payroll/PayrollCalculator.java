@@ -11,18 +11,52 @@ import com.company.payroll.loads.LoadDAO;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 /**
  * Business logic for aggregating and calculating payroll for drivers.
+ *
+ * Loads, fuel, fees and advances for the whole period are fetched up front with one query
+ * per table and grouped by driver in memory; the per-driver work then runs without touching
+ * the database, either sequentially (default) or on a fork-join pool when a parallelism
+ * greater than 1 is configured. Entries are always returned in the order of the driver list.
  */
 public class PayrollCalculator {
 
-    private final EmployeeDAO employeeDAO = new EmployeeDAO();
-    private final LoadDAO loadDAO = new LoadDAO();
-    private final FuelTransactionDAO fuelDAO = new FuelTransactionDAO();
-    private final FeeAdvancesDAO feeAdvancesDAO = new FeeAdvancesDAO();
+    private final EmployeeDAO employeeDAO;
+    private final LoadDAO loadDAO;
+    private final FuelTransactionDAO fuelDAO;
+    private final FeeAdvancesDAO feeAdvancesDAO;
+
+    // 1 = sequential; can be preset with -Dpayroll.parallelism=N
+    private int parallelism = Math.max(1, Integer.getInteger("payroll.parallelism", 1));
+
+    public PayrollCalculator(EmployeeDAO employeeDAO, LoadDAO loadDAO, FuelTransactionDAO fuelDAO, FeeAdvancesDAO feeAdvancesDAO) {
+        this.employeeDAO = employeeDAO;
+        this.loadDAO = loadDAO;
+        this.fuelDAO = fuelDAO;
+        this.feeAdvancesDAO = feeAdvancesDAO;
+    }
+
+    public PayrollCalculator() {
+        this(new EmployeeDAO(), new LoadDAO(), new FuelTransactionDAO(), new FeeAdvancesDAO());
+    }
+
+    public int getParallelism() { return parallelism; }
+
+    /**
+     * Sets how many drivers are calculated concurrently. 1 (the default) runs on the calling thread.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1");
+        this.parallelism = parallelism;
+    }
 
     /**
      * Returns payroll calculations for the given payroll period (inclusive).
@@ -37,59 +71,129 @@ public class PayrollCalculator {
                 ? employeeDAO.getActive()
                 : driversFilter;
 
-        List<PayrollEntry> result = new ArrayList<>();
+        PeriodData data = loadPeriod(periodStart, periodEnd);
 
+        if (parallelism > 1 && drivers.size() > 1) {
+            return calculateParallel(drivers, periodStart, periodEnd, data);
+        }
+        List<PayrollEntry> result = new ArrayList<>(drivers.size());
         for (Employee driver : drivers) {
-            // 1. Loads for driver in period
-            List<Load> loads = loadDAO.getByDriverAndDateRange(driver.getId(), periodStart, periodEnd);
-
-            // 2. Gross pay for loads (driver percent * load amount)
-            double grossPay = loads.stream()
-                    .mapToDouble(load -> {
-                        double percent = driver.getDriverPercent() / 100.0;
-                        return load.getAmount() * percent;
-                    }).sum();
-
-            // 3. Fuel transactions for driver/unit in period
-            List<FuelTransaction> fuelTx = fuelDAO.getByDriverAndDateRange(driver.getName(), driver.getTruckId(), periodStart, periodEnd);
-            double totalFuel = fuelTx.stream().mapToDouble(FuelTransaction::getAmt).sum();
-
-            // 4. Recurring fees for driver and period (month/year match or date in range)
-            List<FeesAdvancesTab.FeeEntry> fees = feeAdvancesDAO.getAllFees().stream()
-                    .filter(fee -> fee.getDriver().getId() == driver.getId()
-                            && !fee.getStartDate().isAfter(periodEnd)
-                            && fee.isActive()
-                            && (fee.getFeeMonth() == periodStart.getMonthValue() && fee.getFeeYear() == periodStart.getYear()))
-                    .collect(Collectors.toList());
-            double totalFees = fees.stream().mapToDouble(FeesAdvancesTab.FeeEntry::getAmount).sum();
-
-            // 5. Cash advances for driver, given during this period and still active
-            List<FeesAdvancesTab.CashAdvanceEntry> advances = feeAdvancesDAO.getAllCashAdvances().stream()
-                    .filter(ca -> ca.getDriver().getId() == driver.getId()
-                            && !ca.getGivenDate().isAfter(periodEnd)
-                            && ca.isActive())
-                    .collect(Collectors.toList());
-            double totalAdvances = advances.stream().mapToDouble(FeesAdvancesTab.CashAdvanceEntry::getAmount).sum();
-
-            // 6. Net pay
-            double netPay = grossPay - totalFuel - totalFees - totalAdvances;
-
-            PayrollEntry entry = new PayrollEntry(
-                    driver,
-                    periodStart,
-                    periodEnd,
-                    loads,
-                    fuelTx,
-                    fees,
-                    advances,
-                    grossPay,
-                    totalFuel,
-                    totalFees,
-                    totalAdvances,
-                    netPay
-            );
-            result.add(entry);
+            result.add(calculateEntry(driver, periodStart, periodEnd, data));
         }
         return result;
     }
-}
\ No newline at end of file
+
+    // Period data is read-only at this point, so drivers can be calculated independently.
+    // An ordered parallel stream keeps the result in driver-list order.
+    private List<PayrollEntry> calculateParallel(List<Employee> drivers, LocalDate periodStart, LocalDate periodEnd, PeriodData data) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(() -> drivers.parallelStream()
+                    .map(driver -> calculateEntry(driver, periodStart, periodEnd, data))
+                    .collect(Collectors.toList()))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Payroll calculation interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException("Payroll calculation failed", cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Fetches everything the period needs in one range query per table, grouped by driver
+    private PeriodData loadPeriod(LocalDate periodStart, LocalDate periodEnd) {
+        PeriodData data = new PeriodData();
+
+        for (Load load : loadDAO.getByDateRange(periodStart, periodEnd)) {
+            if (load.getDriver() == null) continue;
+            data.loadsByDriver.computeIfAbsent(load.getDriver().getId(), k -> new ArrayList<>()).add(load);
+        }
+
+        data.fuel = fuelDAO.getByDateRange(periodStart, periodEnd);
+        for (FuelTransaction tx : data.fuel) {
+            data.fuelByDriverName.computeIfAbsent(tx.getDriverName(), k -> new ArrayList<>()).add(tx);
+        }
+
+        for (FeesAdvancesTab.FeeEntry fee : feeAdvancesDAO.getActiveFeesForMonth(periodStart.getMonthValue(), periodStart.getYear())) {
+            if (fee.getDriver() == null) continue;
+            data.feesByDriver.computeIfAbsent(fee.getDriver().getId(), k -> new ArrayList<>()).add(fee);
+        }
+
+        for (FeesAdvancesTab.CashAdvanceEntry ca : feeAdvancesDAO.getActiveCashAdvances()) {
+            if (ca.getDriver() == null) continue;
+            data.advancesByDriver.computeIfAbsent(ca.getDriver().getId(), k -> new ArrayList<>()).add(ca);
+        }
+        return data;
+    }
+
+    private PayrollEntry calculateEntry(Employee driver, LocalDate periodStart, LocalDate periodEnd, PeriodData data) {
+        // 1. Loads for driver in period
+        List<Load> loads = new ArrayList<>(data.loadsByDriver.getOrDefault(driver.getId(), Collections.emptyList()));
+
+        // 2. Gross pay for loads (driver percent * load amount)
+        double grossPay = loads.stream()
+                .mapToDouble(load -> {
+                    double percent = driver.getDriverPercent() / 100.0;
+                    return load.getAmount() * percent;
+                }).sum();
+
+        // 3. Fuel transactions for driver/unit in period (blank name or unit matches all, as in the DAO)
+        String name = driver.getName();
+        String unit = driver.getTruckId();
+        List<FuelTransaction> candidates = (name != null && !name.isBlank())
+                ? data.fuelByDriverName.getOrDefault(name, Collections.emptyList())
+                : data.fuel;
+        List<FuelTransaction> fuelTx = (unit != null && !unit.isBlank())
+                ? candidates.stream().filter(tx -> unit.equals(tx.getUnit())).collect(Collectors.toList())
+                : new ArrayList<>(candidates);
+        double totalFuel = fuelTx.stream().mapToDouble(FuelTransaction::getAmt).sum();
+
+        // 4. Recurring fees for driver and period (month/year match or date in range)
+        List<FeesAdvancesTab.FeeEntry> fees = data.feesByDriver.getOrDefault(driver.getId(), Collections.emptyList()).stream()
+                .filter(fee -> !fee.getStartDate().isAfter(periodEnd)
+                        && fee.isActive()
+                        && (fee.getFeeMonth() == periodStart.getMonthValue() && fee.getFeeYear() == periodStart.getYear()))
+                .collect(Collectors.toList());
+        double totalFees = fees.stream().mapToDouble(FeesAdvancesTab.FeeEntry::getAmount).sum();
+
+        // 5. Cash advances for driver, given during this period and still active
+        List<FeesAdvancesTab.CashAdvanceEntry> advances = data.advancesByDriver.getOrDefault(driver.getId(), Collections.emptyList()).stream()
+                .filter(ca -> !ca.getGivenDate().isAfter(periodEnd)
+                        && ca.isActive())
+                .collect(Collectors.toList());
+        double totalAdvances = advances.stream().mapToDouble(FeesAdvancesTab.CashAdvanceEntry::getAmount).sum();
+
+        // 6. Net pay
+        double netPay = grossPay - totalFuel - totalFees - totalAdvances;
+
+        return new PayrollEntry(
+                driver,
+                periodStart,
+                periodEnd,
+                loads,
+                fuelTx,
+                fees,
+                advances,
+                grossPay,
+                totalFuel,
+                totalFees,
+                totalAdvances,
+                netPay
+        );
+    }
+
+    /**
+     * All rows for one payroll period, grouped by driver.
+     */
+    private static class PeriodData {
+        final Map<Integer, List<Load>> loadsByDriver = new HashMap<>();
+        List<FuelTransaction> fuel = Collections.emptyList();
+        final Map<String, List<FuelTransaction>> fuelByDriverName = new HashMap<>();
+        final Map<Integer, List<FeesAdvancesTab.FeeEntry>> feesByDriver = new HashMap<>();
+        final Map<Integer, List<FeesAdvancesTab.CashAdvanceEntry>> advancesByDriver = new HashMap<>();
+    }
+}
@@ -1,5 +1,6 @@
 package com.company.payroll.payroll;
 
+import com.company.payroll.db.AsyncDataAccess;
 import com.company.payroll.employees.Employee;
 import com.company.payroll.employees.EmployeeDAO;
 import javafx.beans.property.SimpleDoubleProperty;
@@ -28,20 +29,26 @@ import java.util.stream.Collectors;
  */
 public class PayrollTab extends BorderPane {
 
-    private final EmployeeDAO employeeDAO = new EmployeeDAO();
-    private final PayrollCalculator calculator = new PayrollCalculator();
+    private final EmployeeDAO employeeDAO;
+    private final PayrollCalculator calculator;
 
     private ObservableList<Employee> allDrivers = FXCollections.observableArrayList();
     private ObservableList<PayrollEntry> payrollEntries = FXCollections.observableArrayList();
 
+    // Calculation runs in the background; recalculating or cancelling discards a pending result
+    private final AsyncDataAccess.Request<List<PayrollEntry>> payrollRequest = new AsyncDataAccess.Request<>();
+    private final AsyncDataAccess.Request<List<Employee>> driversRequest = new AsyncDataAccess.Request<>();
+
     // Controls
     private DatePicker weekStartPicker;
     private DatePicker weekEndPicker;
     private ComboBox<Employee> driverFilterBox;
     private TableView<PayrollEntry> table;
 
-    public PayrollTab() {
-        allDrivers.setAll(employeeDAO.getActive());
+    public PayrollTab(EmployeeDAO employeeDAO, PayrollCalculator calculator) {
+        this.employeeDAO = employeeDAO;
+        this.calculator = calculator;
+        driversRequest.submit(employeeDAO::getActive, allDrivers::setAll);
 
         // --- TOP FILTER CONTROLS ---
         HBox filterBox = new HBox(12);
@@ -61,11 +68,14 @@ public class PayrollTab extends BorderPane {
         Button refreshBtn = new Button("Calculate Payroll");
         Button exportBtn = new Button("Export CSV");
         Button copyBtn = new Button("Copy Table");
+        Button cancelBtn = new Button("Cancel");
+        cancelBtn.visibleProperty().bind(payrollRequest.runningProperty());
+        refreshBtn.disableProperty().bind(payrollRequest.runningProperty());
 
         filterBox.getChildren().addAll(new Label("Week Start:"), weekStartPicker,
                 new Label("End:"), weekEndPicker,
                 new Label("Driver:"), driverFilterBox,
-                refreshBtn, exportBtn, copyBtn);
+                refreshBtn, exportBtn, copyBtn, payrollRequest.newIndicator(), cancelBtn);
 
         // --- TABLE ---
         table = new TableView<>(payrollEntries);
@@ -108,6 +118,7 @@ public class PayrollTab extends BorderPane {
 
         // --- BUTTON ACTIONS ---
         refreshBtn.setOnAction(e -> recalculatePayroll());
+        cancelBtn.setOnAction(e -> payrollRequest.cancel());
         exportBtn.setOnAction(e -> exportToCSV());
         copyBtn.setOnAction(e -> copyTableToClipboard());
 
@@ -121,7 +132,7 @@ public class PayrollTab extends BorderPane {
         LocalDate end = weekEndPicker.getValue();
         Employee filter = driverFilterBox.getValue();
         List<Employee> selectedDrivers = filter != null ? List.of(filter) : null;
-        payrollEntries.setAll(calculator.calculatePayroll(start, end, selectedDrivers));
+        payrollRequest.submit(() -> calculator.calculatePayroll(start, end, selectedDrivers), payrollEntries::setAll);
     }
 
     private void exportToCSV() {